@@ -0,0 +1,75 @@
+package benchmark;
+
+import game.Asteroid;
+import game.RandomGenerator;
+import game.Space;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.Polygon;
+import tools.Vector;
+
+/**
+ * Measures the operations of {@link Asteroid} building new objects: the
+ * world shape, and the fragments of hit asteroids.
+ */
+@State(Scope.Thread)
+public class AsteroidBenchmark {
+
+  private Asteroid asteroid;
+
+
+  @Setup
+  public void setUp() {
+    asteroid = new RandomGenerator(42).asteroid(1, Space.SPACE_WIDTH, Space.SPACE_HEIGHT);
+  }
+
+
+  @Benchmark
+  public Polygon getShape() {
+    return asteroid.getShape();
+  }
+
+
+  /**
+   * Measures the fragmentation of hit asteroids, as done by
+   * {@link Space#processProjectiles(double)}. Before each invocation, the
+   * space is reset and a still projectile is put at the centre of every
+   * asteroid, so that every asteroid is hit and splits into fragments.
+   */
+  @State(Scope.Thread)
+  public static class Fragments {
+
+    @Param({"10", "100", "1000"})
+    public int asteroidCount;
+
+    private Space space;
+
+
+    @Setup(Level.Trial)
+    public void setUpSpace() {
+      space = new Space(asteroidCount, 42);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpHits() {
+      space.reset(asteroidCount, 42);
+      for (Asteroid asteroid : space.getAsteroids()) {
+        Vector position = asteroid.getPosition();
+        space.addProjectile(position.getX(), position.getY(), 0, 0);
+      }
+    }
+
+
+    @Benchmark
+    public Space processProjectiles() {
+      space.processProjectiles(0);
+      return space;
+    }
+
+  }
+
+}
@@ -0,0 +1,42 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the benchmarks of this module, with the allocation profiler, so
+ * that each result comes with the number of bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}).
+ * <p>
+ * The benchmark classes are processed by the JMH annotation processor,
+ * which must be enabled when compiling this module.
+ * <p>
+ * Usage: {@code java benchmark.BenchmarkMain [regexp]}, the optional regular
+ * expression selecting the benchmarks to run, for instance {@code Polygon}.
+ */
+public class BenchmarkMain {
+
+  public static void main(String[] args) throws RunnerException {
+    String include = args.length > 0 ? args[0] : "benchmark\\..*";
+    Options options = new OptionsBuilder()
+      .include(include)
+      .addProfiler(GCProfiler.class)
+      .mode(Mode.AverageTime)
+      .timeUnit(TimeUnit.NANOSECONDS)
+      .warmupIterations(5)
+      .warmupTime(TimeValue.seconds(1))
+      .measurementIterations(5)
+      .measurementTime(TimeValue.seconds(1))
+      .forks(1)
+      .build();
+    new Runner(options).run();
+  }
+
+}
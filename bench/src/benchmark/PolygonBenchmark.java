@@ -0,0 +1,50 @@
+package benchmark;
+
+import game.RandomGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.Polygon;
+
+import java.util.Random;
+
+/**
+ * Measures {@link Polygon#contains(double, double)} for the numbers of
+ * vertices produced by {@link RandomGenerator}, on points spread around the
+ * polygon so that about half of them are inside.
+ */
+@State(Scope.Thread)
+public class PolygonBenchmark {
+
+  private static final int POINT_COUNT = 1024;
+
+  @Param({"5", "8", "12"})
+  public int vertexCount;
+
+  private Polygon polygon;
+  private final double[] xs = new double[POINT_COUNT];
+  private final double[] ys = new double[POINT_COUNT];
+  private int next;
+
+
+  @Setup
+  public void setUp() {
+    polygon = new RandomGenerator(42).polygon(vertexCount, 1);
+    Random random = new Random(42);
+    for (int i = 0; i < POINT_COUNT; i++) {
+      xs[i] = random.nextDouble() * 40 - 20;
+      ys[i] = random.nextDouble() * 40 - 20;
+    }
+  }
+
+
+  @Benchmark
+  public boolean contains() {
+    int i = next;
+    next = (i + 1) & (POINT_COUNT - 1);
+    return polygon.contains(xs[i], ys[i]);
+  }
+
+}
@@ -0,0 +1,78 @@
+package benchmark;
+
+import game.Space;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Measures a whole tick of {@link Space#update(double)}, for increasing
+ * numbers of asteroids, without any projectile.
+ */
+@State(Scope.Thread)
+public class SpaceBenchmark {
+
+  private static final double DT = 1. / 120;
+
+  @Param({"10", "1000", "10000"})
+  public int asteroidCount;
+
+  private Space space;
+
+
+  @Setup
+  public void setUp() {
+    space = new Space(asteroidCount, 42);
+  }
+
+
+  @Benchmark
+  public Space update() {
+    space.update(DT);
+    return space;
+  }
+
+
+  /**
+   * Measures the collision phase of a tick, {@link Space#processProjectiles(double)},
+   * for increasing numbers of projectiles among 1000 asteroids. Projectiles are
+   * spread at random; the ones initially inside an asteroid are removed by the
+   * first invocation, and since the time step is zero, nothing moves
+   * afterwards: each invocation then tests the same projectiles against the
+   * same asteroids.
+   */
+  @State(Scope.Thread)
+  public static class Projectiles {
+
+    @Param({"10", "100", "1000", "5000"})
+    public int projectileCount;
+
+    private Space space;
+
+
+    @Setup
+    public void setUp() {
+      space = new Space(1000, 42);
+      Random random = new Random(42);
+      for (int i = 0; i < projectileCount; i++) {
+        space.addProjectile(
+          random.nextDouble() * Space.SPACE_WIDTH, random.nextDouble() * Space.SPACE_HEIGHT,
+          random.nextGaussian() * 100, random.nextGaussian() * 100);
+      }
+      space.processProjectiles(0);
+    }
+
+
+    @Benchmark
+    public Space processProjectiles() {
+      space.processProjectiles(0);
+      return space;
+    }
+
+  }
+
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.Vector;
+
+import java.util.Random;
+
+/**
+ * Measures the basic operations of {@link Vector}, each of which allocates
+ * its result.
+ */
+@State(Scope.Thread)
+public class VectorBenchmark {
+
+  private Vector first;
+  private Vector second;
+  private double angle;
+
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    first = new Vector(random.nextDouble() * 100, random.nextDouble() * 100);
+    second = new Vector(random.nextDouble() * 100, random.nextDouble() * 100);
+    angle = random.nextDouble() * 360;
+  }
+
+
+  @Benchmark
+  public Vector add() {
+    return first.add(second);
+  }
+
+  @Benchmark
+  public Vector multiply() {
+    return first.multiply(angle);
+  }
+
+  @Benchmark
+  public Vector rotate() {
+    return first.rotate(angle);
+  }
+
+  @Benchmark
+  public double distanceTo() {
+    return first.distanceTo(second);
+  }
+
+  @Benchmark
+  public Vector normalize() {
+    return first.normalize();
+  }
+
+  @Benchmark
+  public double angleWith() {
+    return first.angleWith(second);
+  }
+
+}
@@ -0,0 +1,297 @@
+package env;
+
+import game.Command;
+import game.Observations;
+import game.RandomGenerator;
+import game.Space;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A batch of independent games, advanced in lockstep, for training
+ * autopilots. The interface follows the usual vectorized environments:
+ * {@link #reset(long)} starts new episodes, and {@link #step(int[])} applies
+ * one action per environment and simulates one tick in each of them.
+ * <p>
+ * Results are written into arrays allocated once, shared with the caller
+ * and overwritten by each call:
+ * <ul>
+ *   <li>observations: {@link #getObservationSize()} floats per environment,
+ *   ray distances (see {@link Observations#rays}) followed by the state of
+ *   the spaceship (see {@link Observations#spaceship});</li>
+ *   <li>rewards: one float per environment, the points scored during the step;</li>
+ *   <li>dones: one float per environment, 1 if the episode ended during the
+ *   step (game over, or too many steps), 0 otherwise.</li>
+ * </ul>
+ * An environment whose episode ends is reset at once, and its observation
+ * is then the first one of the next episode.
+ * <p>
+ * An action is a combination of the flags {@link #MAIN_ENGINE},
+ * {@link #LEFT_ENGINE}, {@link #RIGHT_ENGINE}, {@link #BRAKE} and
+ * {@link #FIRE}. Engines run while their flag is set; the gun fires once
+ * per step while its flag is set.
+ */
+public class VectorEnv {
+
+  public static final int MAIN_ENGINE = 1;
+  public static final int LEFT_ENGINE = 2;
+  public static final int RIGHT_ENGINE = 4;
+  public static final int BRAKE = 8;
+  public static final int FIRE = 16;
+
+  /**
+   * The number of environments below which a batch is not split anymore.
+   */
+  private static final int ENVS_PER_TASK = 8;
+
+  private final int envCount;
+  private final int asteroidCount;
+  private final double dt;
+  private final int rayCount;
+  private final double rayRange;
+  private final long maxEpisodeSteps;
+  private final ForkJoinPool pool;
+  private final int observationSize;
+
+  private final Space[] spaces;
+  private final RandomGenerator[] seedGenerators;
+  private final int[] previousActions;
+  private final long[] episodeSteps;
+  private final double[] previousScores;
+  private int[] actions;
+
+  private final float[] observations;
+  private final float[] rewards;
+  private final float[] dones;
+  private final FloatBuffer observationBuffer;
+  private final FloatBuffer rewardBuffer;
+  private final FloatBuffer doneBuffer;
+
+
+  /**
+   * @param envCount the number of environments
+   * @param asteroidCount the number of asteroids at the start of each episode
+   * @param dt the duration of a step, in seconds
+   * @param rayCount the number of rays of the observations
+   * @param rayRange the length of the rays, in pixels
+   * @param maxEpisodeSteps the number of steps after which an episode ends
+   * @param pool the pool stepping the environments, or null to step them sequentially
+   */
+  public VectorEnv(int envCount, int asteroidCount, double dt,
+                   int rayCount, double rayRange, long maxEpisodeSteps,
+                   ForkJoinPool pool) {
+    if (envCount <= 0 || rayCount <= 0) {
+      throw new IllegalArgumentException("needs at least one environment and one ray");
+    }
+    this.envCount = envCount;
+    this.asteroidCount = asteroidCount;
+    this.dt = dt;
+    this.rayCount = rayCount;
+    this.rayRange = rayRange;
+    this.maxEpisodeSteps = maxEpisodeSteps;
+    this.pool = pool;
+    this.observationSize = rayCount + Observations.SPACESHIP_FEATURE_COUNT;
+    spaces = new Space[envCount];
+    seedGenerators = new RandomGenerator[envCount];
+    previousActions = new int[envCount];
+    episodeSteps = new long[envCount];
+    previousScores = new double[envCount];
+    observations = new float[envCount * observationSize];
+    rewards = new float[envCount];
+    dones = new float[envCount];
+    observationBuffer = FloatBuffer.wrap(observations);
+    rewardBuffer = FloatBuffer.wrap(rewards);
+    doneBuffer = FloatBuffer.wrap(dones);
+  }
+
+  /**
+   * Builds environments with standard games: 10 asteroids, 60 steps per
+   * second, 16 rays of 300 pixels, and episodes of at most 2 minutes.
+   *
+   * @param envCount the number of environments
+   * @param pool the pool stepping the environments, or null to step them sequentially
+   */
+  public VectorEnv(int envCount, ForkJoinPool pool) {
+    this(envCount, Space.INITIAL_ASTEROID_COUNT, 1. / 60, 16, 300, 60 * 120, pool);
+  }
+
+
+  /** Starts a new episode in every environment. The seeds of all the
+   * episodes, including those started automatically later on, only depend
+   * on the given seed.
+   * @param seed the seed of the batch
+   */
+  public void reset(long seed) {
+    RandomGenerator generator = new RandomGenerator(seed);
+    for (int env = 0; env < envCount; env++) {
+      seedGenerators[env] = generator.split();
+      resetEnv(env);
+      rewards[env] = 0;
+      dones[env] = 0;
+      observe(env);
+    }
+  }
+
+  /** Applies an action in each environment, and simulates one step.
+   * @param actions one action per environment, a combination of the flags of this class
+   */
+  public void step(int[] actions) {
+    if (spaces[0] == null) {
+      throw new IllegalStateException("reset must be called before step");
+    }
+    if (actions.length < envCount) {
+      throw new IllegalArgumentException("expected " + envCount + " actions");
+    }
+    this.actions = actions;
+    if (pool == null || envCount <= ENVS_PER_TASK) {
+      step(0, envCount);
+    } else {
+      pool.invoke(new StepTask(0, envCount));
+    }
+  }
+
+
+  private void step(int from, int to) {
+    for (int env = from; env < to; env++) {
+      step(env);
+    }
+  }
+
+  private void step(int env) {
+    Space space = spaces[env];
+    int action = actions[env];
+    apply(space, previousActions[env], action);
+    previousActions[env] = action;
+    boolean isDone = space.tick(dt) || ++episodeSteps[env] >= maxEpisodeSteps;
+    double score = space.getScore().getScore();
+    rewards[env] = (float) (score - previousScores[env]);
+    previousScores[env] = score;
+    dones[env] = isDone ? 1 : 0;
+    if (isDone) {
+      resetEnv(env);
+    }
+    observe(env);
+  }
+
+  private static void apply(Space space, int previousAction, int action) {
+    toggle(space, previousAction, action, MAIN_ENGINE, Command.START_MAIN_ENGINE, Command.STOP_MAIN_ENGINE);
+    toggle(space, previousAction, action, LEFT_ENGINE, Command.START_LEFT_ENGINE, Command.STOP_LEFT_ENGINE);
+    toggle(space, previousAction, action, RIGHT_ENGINE, Command.START_RIGHT_ENGINE, Command.STOP_RIGHT_ENGINE);
+    toggle(space, previousAction, action, BRAKE, Command.START_BRAKE, Command.STOP_BRAKE);
+    if ((action & FIRE) != 0) {
+      Command.FIRE.applyTo(space);
+    }
+  }
+
+  private static void toggle(Space space, int previousAction, int action, int flag,
+                             Command start, Command stop) {
+    boolean wasOn = (previousAction & flag) != 0;
+    boolean isOn = (action & flag) != 0;
+    if (isOn && !wasOn) {
+      start.applyTo(space);
+    } else if (wasOn && !isOn) {
+      stop.applyTo(space);
+    }
+  }
+
+  private void resetEnv(int env) {
+    long seed = seedGenerators[env].nextLong();
+    if (spaces[env] == null) {
+      spaces[env] = new Space(asteroidCount, seed);
+    } else {
+      spaces[env].reset(asteroidCount, seed);
+    }
+    previousActions[env] = 0;
+    episodeSteps[env] = 0;
+    previousScores[env] = 0;
+  }
+
+  private void observe(int env) {
+    int offset = env * observationSize;
+    Observations.rays(spaces[env], rayCount, rayRange, observations, offset);
+    Observations.spaceship(spaces[env], observations, offset + rayCount);
+  }
+
+
+  public int getEnvCount() {
+    return envCount;
+  }
+
+  /**
+   * @return the number of floats of the observation of one environment
+   */
+  public int getObservationSize() {
+    return observationSize;
+  }
+
+  /**
+   * @return the observations of all the environments, one after the other
+   */
+  public float[] getObservations() {
+    return observations;
+  }
+
+  public float[] getRewards() {
+    return rewards;
+  }
+
+  public float[] getDones() {
+    return dones;
+  }
+
+  /**
+   * @return a buffer view of {@link #getObservations()}
+   */
+  public FloatBuffer getObservationBuffer() {
+    return observationBuffer;
+  }
+
+  /**
+   * @return a buffer view of {@link #getRewards()}
+   */
+  public FloatBuffer getRewardBuffer() {
+    return rewardBuffer;
+  }
+
+  /**
+   * @return a buffer view of {@link #getDones()}
+   */
+  public FloatBuffer getDoneBuffer() {
+    return doneBuffer;
+  }
+
+  /**
+   * @param env the index of an environment
+   * @return the space simulated by this environment, reset in place at
+   * the start of each episode
+   */
+  public Space getSpace(int env) {
+    return spaces[env];
+  }
+
+
+  @SuppressWarnings("serial") // never serialized
+  private class StepTask extends RecursiveAction {
+
+    private final int from;
+    private final int to;
+
+    StepTask(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= ENVS_PER_TASK) {
+        step(from, to);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new StepTask(from, middle), new StepTask(middle, to));
+    }
+  }
+
+}
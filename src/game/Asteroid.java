@@ -4,65 +4,85 @@ import tools.Polygon;
 import tools.Vector;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Models an asteroid. An asteroid is a polygonal shape with velocity
  * and angular velocity. They have currently no acceleration so they travel
  * in straight lines. Their positions must be updated frequently using
  * the <em>update</em> method.
+ * <p>
+ * The state of an asteroid is stored in an {@link AsteroidField}, an
+ * object of this class being only a handle over a slot of the field.
+ * An asteroid out of any field, either built alone or removed from its
+ * field, keeps its state in the handle itself. The buffers receiving this
+ * state are allocated with the handle, so that removing an asteroid from
+ * its field allocates nothing.
  */
 public class Asteroid {
 
   /**
-   * The position of the center of the asteroid.
+   * The field storing the state of the asteroid, or null if the asteroid
+   * is in no field.
    */
-  private Vector position;
+  private AsteroidField field;
 
   /**
-   * The velocity of the center of the asteroid.
+   * The slot of the asteroid in its field.
    */
-  private final Vector velocity;
+  private int slot;
 
   /**
-   * A measure of the rotation of the asteroid since its creation.
+   * The state of the asteroid while it is in no field: its center, its
+   * velocity, its orientation as a cosine and a sine, its angular velocity
+   * and its size, then its shape centered on (0,0), and a buffer for the
+   * shape in world coordinates.
    */
-  private double angle;
+  private double x;
+  private double y;
+  private double vx;
+  private double vy;
+  private double cosine;
+  private double sine;
+  private double angularVelocity;
+  private double size;
+  private final double[] shapeXs;
+  private final double[] shapeYs;
+  private final double[] worldXs;
+  private final double[] worldYs;
 
   /**
-   * The angle in degree by which the asteroid rotates each second.
+   * The size of the toric space the asteroid moves in while it is in no
+   * field: the size of its last field, or the default size.
    */
-  private final double angularVelocity;
-
-  /**
-   * The shape of the asteroid, the center of the asteroid is the
-   * center of its shape.
-   */
-  private final Polygon shape;
-
-  /**
-   * The size of the asteroid (in an arbitrary but fixed unit)
-   */
-  private final double size;
+  private double worldWidth = Space.SPACE_WIDTH;
+  private double worldHeight = Space.SPACE_HEIGHT;
 
   /**
    * @return the position of the center of the asteroid.
    */
   public Vector getPosition() {
-    return position;
+    if (field == null) {
+      return new Vector(x, y);
+    }
+    return new Vector(field.getX(slot), field.getY(slot));
   }
 
   /**
    * @return the velocity of the center of the asteroid.
    */
   public Vector getVelocity() {
-    return velocity;
+    if (field == null) {
+      return new Vector(vx, vy);
+    }
+    return new Vector(field.getVelocityX(slot), field.getVelocityY(slot));
   }
 
   /**
    * @return the angular velocity of the asteroid around its angle.
    */
   public double getAngularVelocity() {
-    return angularVelocity;
+    return field == null ? angularVelocity : field.getAngularVelocity(slot);
   }
 
 
@@ -70,18 +90,52 @@ public class Asteroid {
    * @return a factor of size of the asteroid.
    */
   public double getSize() {
-    return size;
+    return field == null ? size : field.getSize(slot);
   }
 
   /**
    * @return the shape of the asteroid, with same center as the asteroid.
    */
   public Polygon getShape() {
-    return shape.rotate(angle).translate(getPosition());
+    if (field == null) {
+      placeShape();
+      List<Vector> vertices = new ArrayList<>(worldXs.length);
+      for (int i = 0; i < worldXs.length; i++) {
+        vertices.add(new Vector(worldXs[i], worldYs[i]));
+      }
+      return new Polygon(vertices);
+    }
+    return field.getWorldShape(slot);
+  }
+
+  /**
+   * @return the number of vertices of the shape of the asteroid.
+   */
+  public int getNbVertices() {
+    return field == null ? shapeXs.length : field.getVertexCount(slot);
+  }
+
+  /** Copies the vertices of the shape of the asteroid, as given by
+   * <em>getShape()</em>, without allocating any object.
+   * @param xs receives the abscissas, must be at least as long as the number of vertices
+   * @param ys receives the ordinates, must be at least as long as the number of vertices
+   * @return the number of vertices
+   */
+  public int getVertices(double[] xs, double[] ys) {
+    if (field == null) {
+      placeShape();
+      System.arraycopy(worldXs, 0, xs, 0, worldXs.length);
+      System.arraycopy(worldYs, 0, ys, 0, worldYs.length);
+      return worldXs.length;
+    }
+    return field.getWorldVertices(slot, xs, ys);
   }
 
 
   /**
+   * Creates an asteroid in no field. It can later be moved into a field
+   * with {@link AsteroidField#add(Asteroid)}.
+   *
    * @param center          the center of the asteroid
    * @param shape           the shape with center (0,0) of the asteroid
    * @param velocity        the velocity (in pixel per second) of the asteroid
@@ -93,15 +147,118 @@ public class Asteroid {
                   Vector velocity,
                   double angularVelocity,
                   double size) {
-    this.position = center;
-    this.shape = shape;
-    this.angle = 0;
-    this.velocity = velocity;
+    this(shape.nbVertices());
+    List<Vector> vertices = shape.getVertices();
+    for (int i = 0; i < shapeXs.length; i++) {
+      shapeXs[i] = vertices.get(i).getX();
+      shapeYs[i] = vertices.get(i).getY();
+    }
+    this.x = center.getX();
+    this.y = center.getY();
+    this.vx = velocity.getX();
+    this.vy = velocity.getY();
+    this.cosine = 1;
+    this.sine = 0;
     this.angularVelocity = angularVelocity;
     this.size = size;
   }
 
 
+  /**
+   * Creates a handle over an asteroid already stored in a field.
+   *
+   * @param field the field storing the asteroid
+   * @param slot  the slot of the asteroid in the field
+   */
+  Asteroid(AsteroidField field, int slot) {
+    this(field.getVertexCount(slot));
+    bind(field, slot);
+  }
+
+  private Asteroid(int nbVertices) {
+    shapeXs = new double[nbVertices];
+    shapeYs = new double[nbVertices];
+    worldXs = new double[nbVertices];
+    worldYs = new double[nbVertices];
+  }
+
+
+  void bind(AsteroidField field, int slot) {
+    this.field = field;
+    this.slot = slot;
+  }
+
+  AsteroidField getField() {
+    return field;
+  }
+
+  int getSlot() {
+    return slot;
+  }
+
+  /**
+   * Copies the state of the asteroid from its field into the handle, before
+   * the asteroid is removed from the field.
+   */
+  void detach() {
+    x = field.getX(slot);
+    y = field.getY(slot);
+    vx = field.getVelocityX(slot);
+    vy = field.getVelocityY(slot);
+    cosine = field.getCosine(slot);
+    sine = field.getSine(slot);
+    angularVelocity = field.getAngularVelocity(slot);
+    size = field.getSize(slot);
+    field.getShapeVertices(slot, shapeXs, shapeYs);
+    worldWidth = field.getWidth();
+    worldHeight = field.getHeight();
+    field = null;
+  }
+
+  double getX() {
+    return x;
+  }
+
+  double getY() {
+    return y;
+  }
+
+  double getVelocityX() {
+    return vx;
+  }
+
+  double getVelocityY() {
+    return vy;
+  }
+
+  double getCosine() {
+    return cosine;
+  }
+
+  double getSine() {
+    return sine;
+  }
+
+  double[] getShapeXs() {
+    return shapeXs;
+  }
+
+  double[] getShapeYs() {
+    return shapeYs;
+  }
+
+  /**
+   * Computes the shape in world coordinates of an asteroid in no field,
+   * as {@link AsteroidField} does for its asteroids.
+   */
+  private void placeShape() {
+    for (int i = 0; i < shapeXs.length; i++) {
+      worldXs[i] = cosine * shapeXs[i] + sine * shapeYs[i] + x;
+      worldYs[i] = -sine * shapeXs[i] + cosine * shapeYs[i] + y;
+    }
+  }
+
+
   /**
    * Asteroids move over time. To simulate the movement, their positions
    * and other physical properties must be updated regularly. This method
@@ -110,24 +267,55 @@ public class Asteroid {
    * @param dt the time delay to simulate.
    */
   public void update(double dt) {
-    position = position.add(getVelocity().multiply(dt));
-    position = Space.toricRemap(position);
-    angle = angle + getAngularVelocity()* dt;
+    if (field != null) {
+      field.update(slot, dt);
+      return;
+    }
+    x = Space.toricRemap(x + vx * dt, worldWidth);
+    y = Space.toricRemap(y + vy * dt, worldHeight);
+    double rad = Math.toRadians(angularVelocity * dt);
+    double turnCosine = Math.cos(rad);
+    double turnSine = Math.sin(rad);
+    double newCosine = cosine * turnCosine - sine * turnSine;
+    double newSine = sine * turnCosine + cosine * turnSine;
+    double factor = (3 - newCosine * newCosine - newSine * newSine) / 2;
+    cosine = newCosine * factor;
+    sine = newSine * factor;
   }
 
   public boolean contains(Vector point) {
-    return getShape().contains(point);
+    return contains(point.getX(), point.getY());
+  }
+
+  /** Checks whether a point is inside the asteroid.
+   * @param x the abscissa of the point
+   * @param y the ordinate of the point
+   * @return true if the point is inside the asteroid
+   */
+  public boolean contains(double x, double y) {
+    if (field == null) {
+      placeShape();
+      return Polygon.contains(worldXs, worldYs, 0, worldXs.length, x, y);
+    }
+    return field.contains(slot, x, y);
   }
 
-  public ArrayList<Asteroid> fragments() {
-    ArrayList<Asteroid>  asteroidFragments = new ArrayList<>();
-    if (getSize() <= Space.MINIMAL_ASTEROID_SIZE)
-      return asteroidFragments;
-    for (int i = 0; i < Space.NUMBER_ASTEROID_FRAGMENTS; i++) {
-      asteroidFragments.add(Space.generator.asteroid(getPosition(),
-              getSize()*Space.INITIAL_AND_FRAGMENT_RATIO));
+  /** Checks whether the asteroid contains at least one point of a batch.
+   * @param xs the abscissas of the points
+   * @param ys the ordinates of the points
+   * @param count the number of points to check
+   * @return true if one of the points is inside the asteroid
+   */
+  public boolean containsAny(double[] xs, double[] ys, int count) {
+    if (field == null) {
+      for (int i = 0; i < count; i++) {
+        if (contains(xs[i], ys[i])) {
+          return true;
+        }
+      }
+      return false;
     }
-    return asteroidFragments;
+    return field.containsAny(slot, xs, ys, count);
   }
 
 }
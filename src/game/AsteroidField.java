@@ -0,0 +1,798 @@
+package game;
+
+import tools.Polygon;
+import tools.Rotation;
+import tools.Vector;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Stores the physical state of a set of asteroids, in parallel arrays of
+ * primitive values: the asteroid in slot <em>i</em> has center
+ * (x[i], y[i]), velocity (vx[i], vy[i]), and so on. Updating the whole
+ * field is a loop over these arrays, that does not allocate any object.
+ * <p>
+ * The orientation of each asteroid is stored as the cosine and sine of its
+ * angle, and updated by composition with the rotation done in one step.
+ * These steps only change with the duration of the update, so with a fixed
+ * time step no trigonometric function is evaluated at all.
+ * <p>
+ * The shapes of the asteroids placed in world coordinates are computed
+ * at most once between two updates, when first needed, and kept in buffers
+ * shared by the collision tests and the rendering.
+ * <p>
+ * Objects of class {@link Asteroid} are handles over a slot of a field.
+ * Removing an asteroid moves the last asteroid of the field into the freed
+ * slot, so the order of the asteroids is not preserved. The state of a
+ * removed asteroid is copied into its handle, if it has one.
+ */
+public class AsteroidField {
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /**
+   * The number of bytes of an asteroid in a snapshot, without its vertices.
+   */
+  private static final int ENCODED_ASTEROID_SIZE = 11 * Double.BYTES + Integer.BYTES;
+
+  private final double width;
+  private final double height;
+
+  private int count;
+  private double[] x;
+  private double[] y;
+  private double[] vx;
+  private double[] vy;
+  private double[] cosine;
+  private double[] sine;
+  private double[] angularVelocity;
+
+  /**
+   * The rotation done by each asteroid during a delay of stepDuration.
+   */
+  private double[] stepCosine;
+  private double[] stepSine;
+  private double stepDuration = Double.NaN;
+
+  private double[] size;
+  private int[] shapeIndex;
+
+  /**
+   * Incremented each time the whole field moves. The shape in world
+   * coordinates of the asteroid in slot i is up to date if
+   * worldVersions[i] equals this version.
+   */
+  private long version;
+  private long[] worldVersions;
+
+  /**
+   * The shapes of the asteroids, centered on (0,0). The shape of the
+   * asteroid in slot i is the row shapeIndex[i] of this table.
+   */
+  private final ShapeTable shapes;
+
+  /**
+   * The handles already given for each slot, created on demand.
+   */
+  private Asteroid[] handles;
+
+  /**
+   * The loop body of {@link #update(double, ForkJoinPool)}, built once.
+   */
+  private final ParallelRange.Body updateRange = this::updateRange;
+  private final ParallelRange.Body placeShapesRange = this::placeShapes;
+
+  /**
+   * The vertices and the radii of all the shapes, one shape after the
+   * other, as they are saved and restored in single bulk copies.
+   */
+  private double[] packedVertices = new double[0];
+  private double[] packedRadii = new double[0];
+
+  private final List<Asteroid> asList = new AbstractList<>() {
+    @Override
+    public Asteroid get(int index) {
+      return AsteroidField.this.get(index);
+    }
+
+    @Override
+    public int size() {
+      return count;
+    }
+  };
+
+
+  public AsteroidField() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity the number of asteroids the field can hold before growing
+   */
+  public AsteroidField(int capacity) {
+    this(capacity, Space.SPACE_WIDTH, Space.SPACE_HEIGHT);
+  }
+
+  /**
+   * @param capacity the number of asteroids the field can hold before growing
+   * @param width the width of the toric space of the asteroids
+   * @param height the height of the toric space of the asteroids
+   */
+  public AsteroidField(int capacity, double width, double height) {
+    this.width = width;
+    this.height = height;
+    capacity = Math.max(capacity, 1);
+    x = new double[capacity];
+    y = new double[capacity];
+    vx = new double[capacity];
+    vy = new double[capacity];
+    cosine = new double[capacity];
+    sine = new double[capacity];
+    angularVelocity = new double[capacity];
+    stepCosine = new double[capacity];
+    stepSine = new double[capacity];
+    size = new double[capacity];
+    shapeIndex = new int[capacity];
+    worldVersions = new long[capacity];
+    handles = new Asteroid[capacity];
+    shapes = new ShapeTable(capacity);
+  }
+
+
+  double getWidth() {
+    return width;
+  }
+
+  double getHeight() {
+    return height;
+  }
+
+  /**
+   * @return the number of asteroids in the field
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * @return an unmodifiable list view of the asteroids of the field
+   */
+  public List<Asteroid> asList() {
+    return asList;
+  }
+
+
+  /**
+   * @param slot the slot of an asteroid
+   * @return a handle on the asteroid in this slot
+   */
+  public Asteroid get(int slot) {
+    if (slot < 0 || slot >= count) {
+      throw new IndexOutOfBoundsException("no asteroid in slot " + slot);
+    }
+    if (handles[slot] == null) {
+      handles[slot] = new Asteroid(this, slot);
+    }
+    return handles[slot];
+  }
+
+
+  /** Adds an asteroid to the field.
+   * @param center the center of the asteroid
+   * @param shape the shape with center (0,0) of the asteroid
+   * @param velocity the velocity (in pixel per second) of the asteroid
+   * @param angularVelocity the angular velocity (in degree per second) of the asteroid
+   * @param size the relative size of the asteroid
+   * @return the slot of the new asteroid
+   */
+  public int add(Vector center,
+                 Polygon shape,
+                 Vector velocity,
+                 double angularVelocity,
+                 double size) {
+    int slot = add(center.getX(), center.getY(),
+      velocity.getX(), velocity.getY(), angularVelocity, size);
+    this.shapeIndex[slot] = shapes.add(shape);
+    return slot;
+  }
+
+  /** Adds an asteroid to the field, without building any intermediate object.
+   * @param x the abscissa of the center
+   * @param y the ordinate of the center
+   * @param vx the abscissa of the velocity
+   * @param vy the ordinate of the velocity
+   * @param angularVelocity the angular velocity, in degree per second
+   * @param size the relative size of the asteroid
+   * @param shapeXs the abscissas of the vertices of the shape, with center (0,0)
+   * @param shapeYs the ordinates of the vertices of the shape
+   * @param nbVertices the number of vertices of the shape
+   * @return the slot of the new asteroid
+   */
+  int add(double x, double y, double vx, double vy,
+          double angularVelocity, double size,
+          double[] shapeXs, double[] shapeYs, int nbVertices) {
+    int slot = add(x, y, vx, vy, angularVelocity, size);
+    this.shapeIndex[slot] = shapes.add(shapeXs, shapeYs, nbVertices);
+    return slot;
+  }
+
+  private int add(double x, double y, double vx, double vy,
+                  double angularVelocity, double size) {
+    int slot = allocate();
+    this.x[slot] = x;
+    this.y[slot] = y;
+    this.vx[slot] = vx;
+    this.vy[slot] = vy;
+    this.cosine[slot] = 1;
+    this.sine[slot] = 0;
+    this.angularVelocity[slot] = angularVelocity;
+    computeStep(slot);
+    this.size[slot] = size;
+    this.worldVersions[slot] = -1;
+    return slot;
+  }
+
+  /** Makes room for more asteroids, so that adding them does not grow the arrays.
+   * @param extraCount the number of asteroids about to be added
+   */
+  void reserve(int extraCount) {
+    if (count + extraCount > x.length) {
+      grow(Math.max(count + extraCount, 2 * x.length));
+    }
+  }
+
+
+  /** Moves an asteroid from its current field, if any, into this field.
+   * The handle remains valid and refers to the asteroid in its new slot.
+   * @param asteroid an asteroid that is not in this field
+   */
+  public void add(Asteroid asteroid) {
+    AsteroidField source = asteroid.getField();
+    if (source == this) {
+      throw new IllegalArgumentException("asteroid already in the field");
+    }
+    if (source == null) {
+      addDetached(asteroid);
+      return;
+    }
+    int sourceSlot = asteroid.getSlot();
+    int slot = allocate();
+    x[slot] = source.x[sourceSlot];
+    y[slot] = source.y[sourceSlot];
+    vx[slot] = source.vx[sourceSlot];
+    vy[slot] = source.vy[sourceSlot];
+    cosine[slot] = source.cosine[sourceSlot];
+    sine[slot] = source.sine[sourceSlot];
+    angularVelocity[slot] = source.angularVelocity[sourceSlot];
+    computeStep(slot);
+    size[slot] = source.size[sourceSlot];
+    shapeIndex[slot] = shapes.copy(source.shapes, source.shapeIndex[sourceSlot]);
+    worldVersions[slot] = -1;
+    source.handles[sourceSlot] = null;
+    source.removeSlot(sourceSlot);
+    handles[slot] = asteroid;
+    asteroid.bind(this, slot);
+  }
+
+
+  /**
+   * Adds an asteroid in no field, from the state kept by its handle.
+   */
+  private void addDetached(Asteroid asteroid) {
+    double[] shapeXs = asteroid.getShapeXs();
+    int slot = add(asteroid.getX(), asteroid.getY(),
+      asteroid.getVelocityX(), asteroid.getVelocityY(),
+      asteroid.getAngularVelocity(), asteroid.getSize(),
+      shapeXs, asteroid.getShapeYs(), shapeXs.length);
+    cosine[slot] = asteroid.getCosine();
+    sine[slot] = asteroid.getSine();
+    handles[slot] = asteroid;
+    asteroid.bind(this, slot);
+  }
+
+
+  /** Removes an asteroid from the field. The handle remains valid, and
+   * keeps the state of the asteroid by itself, without allocating.
+   * @param asteroid an asteroid of this field
+   */
+  public void remove(Asteroid asteroid) {
+    if (asteroid.getField() != this) {
+      throw new IllegalArgumentException("asteroid not in the field");
+    }
+    int slot = asteroid.getSlot();
+    asteroid.detach();
+    handles[slot] = null;
+    removeSlot(slot);
+  }
+
+  /** Removes the asteroid in a slot. If a handle refers to it, the handle
+   * remains valid, as with {@link #remove(Asteroid)}.
+   * @param slot the slot of an asteroid
+   */
+  void remove(int slot) {
+    if (handles[slot] != null) {
+      remove(handles[slot]);
+    } else {
+      removeSlot(slot);
+    }
+  }
+
+
+  /**
+   * Removes all the asteroids of the field. Handles on these asteroids
+   * must not be used anymore.
+   */
+  public void clear() {
+    for (int slot = count - 1; slot >= 0; slot--) {
+      shapes.release(shapeIndex[slot]);
+      handles[slot] = null;
+    }
+    count = 0;
+  }
+
+
+  private int allocate() {
+    if (count == x.length) {
+      grow(2 * count);
+    }
+    return count++;
+  }
+
+
+  private void grow(int capacity) {
+    x = Arrays.copyOf(x, capacity);
+    y = Arrays.copyOf(y, capacity);
+    vx = Arrays.copyOf(vx, capacity);
+    vy = Arrays.copyOf(vy, capacity);
+    cosine = Arrays.copyOf(cosine, capacity);
+    sine = Arrays.copyOf(sine, capacity);
+    angularVelocity = Arrays.copyOf(angularVelocity, capacity);
+    stepCosine = Arrays.copyOf(stepCosine, capacity);
+    stepSine = Arrays.copyOf(stepSine, capacity);
+    size = Arrays.copyOf(size, capacity);
+    shapeIndex = Arrays.copyOf(shapeIndex, capacity);
+    worldVersions = Arrays.copyOf(worldVersions, capacity);
+    handles = Arrays.copyOf(handles, capacity);
+  }
+
+
+  /**
+   * Removes the asteroid in a slot, by moving the last asteroid into it.
+   * The handle on the removed asteroid must have been taken care of.
+   */
+  private void removeSlot(int slot) {
+    shapes.release(shapeIndex[slot]);
+    int last = --count;
+    if (slot != last) {
+      x[slot] = x[last];
+      y[slot] = y[last];
+      vx[slot] = vx[last];
+      vy[slot] = vy[last];
+      cosine[slot] = cosine[last];
+      sine[slot] = sine[last];
+      angularVelocity[slot] = angularVelocity[last];
+      stepCosine[slot] = stepCosine[last];
+      stepSine[slot] = stepSine[last];
+      size[slot] = size[last];
+      shapeIndex[slot] = shapeIndex[last];
+      worldVersions[slot] = worldVersions[last];
+      handles[slot] = handles[last];
+      if (handles[slot] != null) {
+        handles[slot].bind(this, slot);
+      }
+    }
+    handles[last] = null;
+  }
+
+
+  /**
+   * Simulates the effect of a small time delay <em>dt</em> upon all
+   * the asteroids of the field.
+   *
+   * @param dt the time delay to simulate.
+   */
+  public void update(double dt) {
+    update(dt, null);
+  }
+
+  /**
+   * Same as {@link #update(double)}, splitting the asteroids among the
+   * workers of a fork-join pool when there are enough of them. Each
+   * asteroid is updated on its own, so the result does not depend on
+   * the split.
+   *
+   * @param dt the time delay to simulate.
+   * @param pool the pool running the update, or null for a sequential update
+   */
+  public void update(double dt, ForkJoinPool pool) {
+    if (dt != stepDuration) {
+      stepDuration = dt;
+      for (int slot = 0; slot < count; slot++) {
+        computeStep(slot);
+      }
+    }
+    ParallelRange.forEach(pool, count, updateRange);
+    version++;
+  }
+
+  private void updateRange(int from, int to) {
+    for (int slot = from; slot < to; slot++) {
+      move(slot, stepDuration);
+      turn(slot, stepCosine[slot], stepSine[slot]);
+    }
+  }
+
+  /**
+   * Simulates the effect of a small time delay <em>dt</em> upon one asteroid.
+   *
+   * @param slot the slot of the asteroid
+   * @param dt the time delay to simulate.
+   */
+  void update(int slot, double dt) {
+    move(slot, dt);
+    double rad = Math.toRadians(angularVelocity[slot] * dt);
+    turn(slot, Math.cos(rad), Math.sin(rad));
+    worldVersions[slot] = -1;
+  }
+
+  private void move(int slot, double dt) {
+    x[slot] = Space.toricRemap(x[slot] + vx[slot] * dt, width);
+    y[slot] = Space.toricRemap(y[slot] + vy[slot] * dt, height);
+  }
+
+  /**
+   * Composes the orientation of an asteroid with a rotation, then corrects
+   * the rounding errors of the composition.
+   */
+  private void turn(int slot, double turnCosine, double turnSine) {
+    double newCosine = cosine[slot] * turnCosine - sine[slot] * turnSine;
+    double newSine = sine[slot] * turnCosine + cosine[slot] * turnSine;
+    double factor = (3 - newCosine * newCosine - newSine * newSine) / 2;
+    cosine[slot] = newCosine * factor;
+    sine[slot] = newSine * factor;
+  }
+
+  /**
+   * Computes the rotation done by an asteroid during the current step duration.
+   */
+  private void computeStep(int slot) {
+    if (Double.isNaN(stepDuration)) {
+      return;
+    }
+    double rad = Math.toRadians(angularVelocity[slot] * stepDuration);
+    stepCosine[slot] = Math.cos(rad);
+    stepSine[slot] = Math.sin(rad);
+  }
+
+
+  /**
+   * @return the number of bytes written by {@link #write(ByteBuffer)}
+   */
+  int getEncodedSize() {
+    int nbVertices = 0;
+    for (int slot = 0; slot < count; slot++) {
+      nbVertices += shapes.vertexCount(shapeIndex[slot]);
+    }
+    return Integer.BYTES + Double.BYTES
+      + count * ENCODED_ASTEROID_SIZE
+      + 2 * nbVertices * Double.BYTES;
+  }
+
+  /** Writes the asteroids, in slot order, see {@link SpaceCodec}. The
+   * rotations done in one step and the radii of the shapes are saved too,
+   * so that restoring the field only copies values.
+   * @param buffer the buffer receiving the asteroids
+   */
+  void write(ByteBuffer buffer) {
+    buffer.putInt(count);
+    buffer.putDouble(stepDuration);
+    SpaceCodec.putDoubles(buffer, x, 0, count);
+    SpaceCodec.putDoubles(buffer, y, 0, count);
+    SpaceCodec.putDoubles(buffer, vx, 0, count);
+    SpaceCodec.putDoubles(buffer, vy, 0, count);
+    SpaceCodec.putDoubles(buffer, cosine, 0, count);
+    SpaceCodec.putDoubles(buffer, sine, 0, count);
+    SpaceCodec.putDoubles(buffer, angularVelocity, 0, count);
+    SpaceCodec.putDoubles(buffer, stepCosine, 0, count);
+    SpaceCodec.putDoubles(buffer, stepSine, 0, count);
+    SpaceCodec.putDoubles(buffer, size, 0, count);
+    packedRadii = ensureCapacity(packedRadii, count);
+    for (int slot = 0; slot < count; slot++) {
+      packedRadii[slot] = shapes.radius(shapeIndex[slot]);
+    }
+    SpaceCodec.putDoubles(buffer, packedRadii, 0, count);
+    for (int slot = 0; slot < count; slot++) {
+      buffer.putInt(shapes.vertexCount(shapeIndex[slot]));
+    }
+    int packed = 0;
+    for (int slot = 0; slot < count; slot++) {
+      int row = shapeIndex[slot];
+      int nbVertices = shapes.vertexCount(row);
+      packedVertices = ensureCapacity(packedVertices, packed + 2 * nbVertices);
+      System.arraycopy(shapes.getXs(), shapes.offset(row), packedVertices, packed, nbVertices);
+      System.arraycopy(shapes.getYs(), shapes.offset(row), packedVertices, packed + nbVertices, nbVertices);
+      packed += 2 * nbVertices;
+    }
+    SpaceCodec.putDoubles(buffer, packedVertices, 0, packed);
+  }
+
+  /** Replaces all the asteroids of the field by asteroids written by
+   * {@link #write(ByteBuffer)}, in the same slots. Handles on the previous
+   * asteroids must not be used anymore.
+   * @param buffer the buffer holding the asteroids
+   */
+  void read(ByteBuffer buffer) {
+    int newCount = buffer.getInt();
+    if (newCount < 0 || newCount > buffer.remaining() / ENCODED_ASTEROID_SIZE) {
+      throw new IllegalArgumentException("invalid number of asteroids " + newCount);
+    }
+    stepDuration = buffer.getDouble();
+    clear();
+    reserve(newCount);
+    SpaceCodec.getDoubles(buffer, x, 0, newCount);
+    SpaceCodec.getDoubles(buffer, y, 0, newCount);
+    SpaceCodec.getDoubles(buffer, vx, 0, newCount);
+    SpaceCodec.getDoubles(buffer, vy, 0, newCount);
+    SpaceCodec.getDoubles(buffer, cosine, 0, newCount);
+    SpaceCodec.getDoubles(buffer, sine, 0, newCount);
+    SpaceCodec.getDoubles(buffer, angularVelocity, 0, newCount);
+    SpaceCodec.getDoubles(buffer, stepCosine, 0, newCount);
+    SpaceCodec.getDoubles(buffer, stepSine, 0, newCount);
+    SpaceCodec.getDoubles(buffer, size, 0, newCount);
+    packedRadii = ensureCapacity(packedRadii, newCount);
+    SpaceCodec.getDoubles(buffer, packedRadii, 0, newCount);
+    int packed = 0;
+    for (int slot = 0; slot < newCount; slot++) {
+      int nbVertices = buffer.getInt();
+      if (nbVertices < 0 || nbVertices > buffer.remaining() / (2 * Double.BYTES) - packed / 2) {
+        throw new IllegalArgumentException("invalid number of vertices " + nbVertices);
+      }
+      packed += 2 * nbVertices;
+    }
+    packedVertices = ensureCapacity(packedVertices, packed);
+    int vertexCounts = buffer.position() - newCount * Integer.BYTES;
+    SpaceCodec.getDoubles(buffer, packedVertices, 0, packed);
+    packed = 0;
+    for (int slot = 0; slot < newCount; slot++) {
+      int nbVertices = buffer.getInt(vertexCounts + slot * Integer.BYTES);
+      shapeIndex[slot] = shapes.add(packedVertices, packed,
+        packedVertices, packed + nbVertices, nbVertices, packedRadii[slot]);
+      worldVersions[slot] = -1;
+      packed += 2 * nbVertices;
+    }
+    count = newCount;
+  }
+
+
+  private static double[] ensureCapacity(double[] array, int length) {
+    if (array.length >= length) {
+      return array;
+    }
+    return Arrays.copyOf(array, Math.max(length, 2 * array.length));
+  }
+
+
+  /** Places the shapes of all the asteroids in world coordinates, so
+   * that several threads can then test points against the asteroids, the
+   * world shapes being only read.
+   * @param pool the pool running the placement, or null to place them sequentially
+   */
+  void placeShapes(ForkJoinPool pool) {
+    ParallelRange.forEach(pool, count, placeShapesRange);
+  }
+
+  private void placeShapes(int from, int to) {
+    for (int slot = from; slot < to; slot++) {
+      placeShape(slot);
+    }
+  }
+
+
+  /**
+   * Computes the shape in world coordinates of an asteroid, unless it is
+   * already up to date.
+   */
+  private void placeShape(int slot) {
+    if (worldVersions[slot] == version) {
+      return;
+    }
+    int row = shapeIndex[slot];
+    int offset = shapes.offset(row);
+    int end = offset + shapes.vertexCount(row);
+    double[] xs = shapes.getXs();
+    double[] ys = shapes.getYs();
+    double[] worldXs = shapes.getWorldXs();
+    double[] worldYs = shapes.getWorldYs();
+    double cosine = this.cosine[slot];
+    double sine = this.sine[slot];
+    for (int i = offset; i < end; i++) {
+      worldXs[i] = cosine * xs[i] + sine * ys[i] + x[slot];
+      worldYs[i] = -sine * xs[i] + cosine * ys[i] + y[slot];
+    }
+    worldVersions[slot] = version;
+  }
+
+
+  /** Checks whether a point is inside an asteroid.
+   * @param slot the slot of the asteroid
+   * @param px the abscissa of the point
+   * @param py the ordinate of the point
+   * @return true if the point is inside the asteroid
+   */
+  boolean contains(int slot, double px, double py) {
+    placeShape(slot);
+    int row = shapeIndex[slot];
+    return Polygon.contains(shapes.getWorldXs(), shapes.getWorldYs(),
+      shapes.offset(row), shapes.vertexCount(row), px, py);
+  }
+
+
+  /** Checks whether an asteroid contains at least one point of a batch.
+   * @param slot the slot of the asteroid
+   * @param pxs the abscissas of the points
+   * @param pys the ordinates of the points
+   * @param nbPoints the number of points to check
+   * @return true if one of the points is inside the asteroid
+   */
+  boolean containsAny(int slot, double[] pxs, double[] pys, int nbPoints) {
+    for (int i = 0; i < nbPoints; i++) {
+      if (contains(slot, pxs[i], pys[i])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  /** Copies the vertices of an asteroid, in world coordinates.
+   * @param slot the slot of the asteroid
+   * @param xs receives the abscissas, must be at least as long as the number of vertices
+   * @param ys receives the ordinates, must be at least as long as the number of vertices
+   * @return the number of vertices
+   */
+  int getWorldVertices(int slot, double[] xs, double[] ys) {
+    return getWorldVertices(slot, xs, ys, 0);
+  }
+
+  /** Copies the world coordinates of the vertices of an asteroid.
+   * @param slot the slot of an asteroid
+   * @param xs receives the abscissas, from index <em>offset</em>
+   * @param ys receives the ordinates, from index <em>offset</em>
+   * @param offset the index receiving the first vertex
+   * @return the number of vertices
+   */
+  int getWorldVertices(int slot, double[] xs, double[] ys, int offset) {
+    placeShape(slot);
+    int row = shapeIndex[slot];
+    int nbVertices = shapes.vertexCount(row);
+    System.arraycopy(shapes.getWorldXs(), shapes.offset(row), xs, offset, nbVertices);
+    System.arraycopy(shapes.getWorldYs(), shapes.offset(row), ys, offset, nbVertices);
+    return nbVertices;
+  }
+
+
+  /**
+   * @param slot the slot of an asteroid
+   * @return a new polygon with the shape of the asteroid in world coordinates
+   */
+  Polygon getWorldShape(int slot) {
+    int nbVertices = getVertexCount(slot);
+    double[] xs = new double[nbVertices];
+    double[] ys = new double[nbVertices];
+    getWorldVertices(slot, xs, ys);
+    List<Vector> vertices = new ArrayList<>(nbVertices);
+    for (int i = 0; i < nbVertices; i++) {
+      vertices.add(new Vector(xs[i], ys[i]));
+    }
+    return new Polygon(vertices);
+  }
+
+
+  /** Copies the vertices of the shape of an asteroid, centered on (0,0)
+   * and not rotated.
+   * @param slot the slot of an asteroid
+   * @param xs receives the abscissas, must be at least as long as the number of vertices
+   * @param ys receives the ordinates, must be at least as long as the number of vertices
+   */
+  void getShapeVertices(int slot, double[] xs, double[] ys) {
+    int row = shapeIndex[slot];
+    System.arraycopy(shapes.getXs(), shapes.offset(row), xs, 0, shapes.vertexCount(row));
+    System.arraycopy(shapes.getYs(), shapes.offset(row), ys, 0, shapes.vertexCount(row));
+  }
+
+  /**
+   * @param slot the slot of an asteroid
+   * @return the number of vertices of the shape of the asteroid
+   */
+  int getVertexCount(int slot) {
+    return shapes.vertexCount(shapeIndex[slot]);
+  }
+
+
+  double getX(int slot) {
+    return x[slot];
+  }
+
+  double getY(int slot) {
+    return y[slot];
+  }
+
+  double getVelocityX(int slot) {
+    return vx[slot];
+  }
+
+  double getVelocityY(int slot) {
+    return vy[slot];
+  }
+
+  /**
+   * @param slot the slot of an asteroid
+   * @return the rotation of the asteroid since its creation
+   */
+  Rotation getRotation(int slot) {
+    return new Rotation(cosine[slot], sine[slot]);
+  }
+
+  double getCosine(int slot) {
+    return cosine[slot];
+  }
+
+  double getSine(int slot) {
+    return sine[slot];
+  }
+
+  /**
+   * @param slot the slot of an asteroid
+   * @return the identifier of its shape, which no other shape ever has
+   */
+  long getShapeId(int slot) {
+    return shapes.id(shapeIndex[slot]);
+  }
+
+  double getAngularVelocity(int slot) {
+    return angularVelocity[slot];
+  }
+
+  double getSize(int slot) {
+    return size[slot];
+  }
+
+  /**
+   * @param slot the slot of an asteroid
+   * @return the radius of the smallest disk with same center containing the asteroid
+   */
+  double getRadius(int slot) {
+    return shapes.radius(shapeIndex[slot]);
+  }
+
+  /** Checks whether a point lies in the disk bounding an asteroid. This is
+   * a cheap necessary condition for the asteroid to contain the point.
+   * @param slot the slot of an asteroid
+   * @param x the abscissa of the point
+   * @param y the ordinate of the point
+   * @return true if the point is in the bounding disk of the asteroid
+   */
+  boolean boundsContain(int slot, double x, double y) {
+    double dx = x - this.x[slot];
+    double dy = y - this.y[slot];
+    double radius = getRadius(slot);
+    return dx * dx + dy * dy <= radius * radius;
+  }
+
+  /**
+   * @return the largest radius of an asteroid in the field, 0 if the field is empty
+   */
+  double getMaximalRadius() {
+    double maximalRadius = 0;
+    for (int slot = 0; slot < count; slot++) {
+      maximalRadius = Math.max(maximalRadius, getRadius(slot));
+    }
+    return maximalRadius;
+  }
+
+}
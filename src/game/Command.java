@@ -0,0 +1,71 @@
+package game;
+
+/**
+ * The commands a player can give to the spaceship. Commands are values,
+ * so that they can be queued by the user interface and applied by the
+ * simulation at the start of its next tick.
+ */
+public enum Command {
+
+  START_MAIN_ENGINE {
+    @Override
+    public void applyTo(Space space) {
+      space.getSpaceship().startMainEngine();
+    }
+  },
+  STOP_MAIN_ENGINE {
+    @Override
+    public void applyTo(Space space) {
+      space.getSpaceship().stopMainEngine();
+    }
+  },
+  START_LEFT_ENGINE {
+    @Override
+    public void applyTo(Space space) {
+      space.getSpaceship().startLeftEngine();
+    }
+  },
+  STOP_LEFT_ENGINE {
+    @Override
+    public void applyTo(Space space) {
+      space.getSpaceship().stopLeftEngine();
+    }
+  },
+  START_RIGHT_ENGINE {
+    @Override
+    public void applyTo(Space space) {
+      space.getSpaceship().startRightEngine();
+    }
+  },
+  STOP_RIGHT_ENGINE {
+    @Override
+    public void applyTo(Space space) {
+      space.getSpaceship().stopRightEngine();
+    }
+  },
+  START_BRAKE {
+    @Override
+    public void applyTo(Space space) {
+      space.getSpaceship().startBrake();
+    }
+  },
+  STOP_BRAKE {
+    @Override
+    public void applyTo(Space space) {
+      space.getSpaceship().stopBreak();
+    }
+  },
+  FIRE {
+    @Override
+    public void applyTo(Space space) {
+      space.fire();
+    }
+  };
+
+
+  /** Executes the command.
+   * @param space the space containing the spaceship to command
+   */
+  public abstract void applyTo(Space space);
+
+}
@@ -0,0 +1,104 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * The hits found by one worker of the collision phase, over a range of
+ * projectiles: pairs of a projectile index and an asteroid slot, in the
+ * order they were found. A buffer also owns the scratch arrays needed to
+ * query the grid, and counts the tests it made, so that workers share
+ * nothing while they scan.
+ */
+class HitBuffer {
+
+  private int[] candidates = new int[0];
+  private final int[] neighbourColumns = new int[3];
+  private final int[] neighbourRows = new int[3];
+
+  private int[] projectileIndices = new int[16];
+  private int[] asteroidSlots = new int[16];
+  private int count;
+
+  private long candidatePairCount;
+  private long exactTestCount;
+
+
+  /** Finds the asteroids hit by a range of projectiles, replacing the
+   * previous content of the buffer. The world shapes of the asteroids
+   * must be up to date when several buffers scan at the same time.
+   * Each asteroid is tested against the image of the projectile closest
+   * to its center, so that an asteroid crossing an edge of the space is
+   * hit on both sides.
+   *
+   * @param projectiles the projectiles
+   * @param from the index of the first projectile to test
+   * @param to the index following the last projectile to test
+   * @param asteroids the asteroids
+   * @param grid the grid indexing the asteroids
+   */
+  void scan(ProjectilePool projectiles, int from, int to,
+            AsteroidField asteroids, SpatialHash grid) {
+    count = 0;
+    candidatePairCount = 0;
+    exactTestCount = 0;
+    if (candidates.length < asteroids.size()) {
+      candidates = new int[2 * asteroids.size()];
+    }
+    for (int index = from; index < to; index++) {
+      double x = projectiles.getX(index);
+      double y = projectiles.getY(index);
+      int nbCandidates =
+        grid.query(x, y, candidates, neighbourColumns, neighbourRows);
+      candidatePairCount += nbCandidates;
+      for (int i = 0; i < nbCandidates; i++) {
+        int slot = candidates[i];
+        double imageX = asteroids.getX(slot)
+          + Space.closestImage(x - asteroids.getX(slot), grid.getWidth());
+        double imageY = asteroids.getY(slot)
+          + Space.closestImage(y - asteroids.getY(slot), grid.getHeight());
+        if (!asteroids.boundsContain(slot, imageX, imageY)) {
+          continue;
+        }
+        exactTestCount++;
+        if (asteroids.contains(slot, imageX, imageY)) {
+          add(index, slot);
+        }
+      }
+    }
+  }
+
+  private void add(int projectileIndex, int asteroidSlot) {
+    if (count == projectileIndices.length) {
+      projectileIndices = Arrays.copyOf(projectileIndices, 2 * count);
+      asteroidSlots = Arrays.copyOf(asteroidSlots, 2 * count);
+    }
+    projectileIndices[count] = projectileIndex;
+    asteroidSlots[count] = asteroidSlot;
+    count++;
+  }
+
+
+  /**
+   * @return the number of hits found
+   */
+  int size() {
+    return count;
+  }
+
+  int getProjectileIndex(int hit) {
+    return projectileIndices[hit];
+  }
+
+  int getAsteroidSlot(int hit) {
+    return asteroidSlots[hit];
+  }
+
+  long getCandidatePairCount() {
+    return candidatePairCount;
+  }
+
+  long getExactTestCount() {
+    return exactTestCount;
+  }
+
+}
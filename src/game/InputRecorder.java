@@ -0,0 +1,176 @@
+package game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Records the commands given to a simulated space, so that the session can
+ * be replayed exactly, see {@link InputRecording}. The space is saved once,
+ * when the recording starts; afterwards, only the inputs of the simulation
+ * are logged, in a few bytes each.
+ * <p>
+ * A recording is made of:
+ * <ul>
+ *   <li>a header: a magic number, a version, the seed of the space, the
+ *   tick at which the recording started, and the snapshot of the space at
+ *   this tick (see {@link SpaceCodec});</li>
+ *   <li>events, each made of the number of ticks since the previous event
+ *   as a variable-length integer, and a one-byte code: the ordinal of a
+ *   command applied before the tick, {@link #DURATION} followed by the
+ *   new duration of the ticks, or {@link #END};</li>
+ *   <li>after {@link #END}, the hash of the final state of the space
+ *   (see {@link SpaceCodec#hash(Space)}).</li>
+ * </ul>
+ * Variable-length integers use 7 bits per byte, the high bit telling
+ * whether more bytes follow. Other numbers are big-endian.
+ * <p>
+ * A recorder is not thread-safe: it is meant to be fed by the thread
+ * running the ticks, and saved while no tick is in progress.
+ */
+public class InputRecorder {
+
+  /**
+   * The first four bytes of a recording, "ASTI" in ASCII.
+   */
+  static final int MAGIC = 0x41535449;
+  static final int VERSION = 1;
+
+  /**
+   * The code of an event changing the duration of the ticks.
+   */
+  static final int DURATION = 0x40;
+
+  /**
+   * The code of the last event, at the tick where the recording was saved.
+   */
+  static final int END = 0x41;
+
+  /**
+   * The largest number of bytes of a variable-length long.
+   */
+  static final int MAX_VARINT_SIZE = 10;
+
+  private final long seed;
+  private final long startTick;
+  private final byte[] initialState;
+
+  private byte[] events = new byte[256];
+  private int size;
+  private long lastTick;
+  private double duration = Double.NaN;
+
+
+  /** Starts a recording.
+   * @param space the space whose inputs are recorded, in its current state
+   * @param tick the index of the next tick of the space
+   */
+  public InputRecorder(Space space, long tick) {
+    ByteBuffer snapshot = space.snapshot();
+    initialState = new byte[snapshot.remaining()];
+    snapshot.get(initialState);
+    seed = space.getSeed();
+    startTick = tick;
+    lastTick = tick;
+  }
+
+
+  /** Records the start of a tick, before its commands.
+   * @param tick the index of the tick
+   * @param dt the duration of the tick
+   */
+  void tick(long tick, double dt) {
+    if (dt != duration) {
+      addEvent(tick, DURATION);
+      ensureCapacity(Long.BYTES);
+      long bits = Double.doubleToRawLongBits(dt);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        events[size++] = (byte) (bits >>> shift);
+      }
+      duration = dt;
+    }
+  }
+
+  /** Records a command applied before a tick.
+   * @param tick the index of the tick
+   * @param command the command
+   */
+  void record(long tick, Command command) {
+    addEvent(tick, command.ordinal());
+  }
+
+  private void addEvent(long tick, int code) {
+    ensureCapacity(MAX_VARINT_SIZE + 1);
+    size = putVarLong(events, size, tick - lastTick);
+    events[size++] = (byte) code;
+    lastTick = tick;
+  }
+
+  private void ensureCapacity(int extraSize) {
+    if (size + extraSize > events.length) {
+      events = Arrays.copyOf(events, 2 * events.length + extraSize);
+    }
+  }
+
+
+  /** Writes the recording, ending at a given tick. The recording goes
+   * on, and can be written again later.
+   * @param out the stream receiving the recording
+   * @param space the recorded space, whose state is hashed
+   * @param tick the index of the next tick of the space
+   * @throws IOException if the recording cannot be written
+   */
+  public void write(OutputStream out, Space space, long tick) throws IOException {
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    data.writeInt(MAGIC);
+    data.writeByte(VERSION);
+    data.writeLong(seed);
+    data.writeLong(startTick);
+    data.writeInt(initialState.length);
+    data.write(initialState);
+    data.write(events, 0, size);
+    byte[] end = new byte[MAX_VARINT_SIZE];
+    data.write(end, 0, putVarLong(end, 0, tick - lastTick));
+    data.writeByte(END);
+    data.writeLong(SpaceCodec.hash(space));
+    data.flush();
+  }
+
+  /** Saves the recording into a file, see {@link #write(OutputStream, Space, long)}.
+   * @param path the file, created or replaced
+   * @param space the recorded space, whose state is hashed
+   * @param tick the index of the next tick of the space
+   * @throws IOException if the file cannot be written
+   */
+  public void save(Path path, Space space, long tick) throws IOException {
+    try (OutputStream out = Files.newOutputStream(path)) {
+      write(out, space, tick);
+    }
+  }
+
+  /**
+   * @return the number of bytes of the events recorded so far
+   */
+  public int getEventSize() {
+    return size;
+  }
+
+
+  /** Writes a non-negative long with 7 bits per byte.
+   * @return the offset following the last byte written
+   */
+  static int putVarLong(byte[] target, int offset, long value) {
+    while ((value & ~0x7FL) != 0) {
+      target[offset++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    target[offset++] = (byte) value;
+    return offset;
+  }
+
+}
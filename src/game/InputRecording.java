@@ -0,0 +1,189 @@
+package game;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A session recorded by an {@link InputRecorder}, read back to be replayed.
+ * Replaying restores the space saved at the start of the recording, then
+ * simulates the same ticks with the same commands, as fast as possible,
+ * without any display nor thread. Since the simulation is deterministic,
+ * the replayed space ends in the same state as the recorded one, which
+ * {@link #matches(Space)} checks.
+ */
+public final class InputRecording {
+
+  private static final Command[] COMMANDS = Command.values();
+
+  private final long seed;
+  private final long startTick;
+  private final long endTick;
+  private final long finalHash;
+  private final ByteBuffer initialState;
+  private final ByteBuffer events;
+  private final int commandCount;
+  private final double simulatedTime;
+
+
+  private InputRecording(ByteBuffer buffer) {
+    if (buffer.getInt() != InputRecorder.MAGIC) {
+      throw new IllegalArgumentException("not an input recording");
+    }
+    int version = buffer.get();
+    if (version != InputRecorder.VERSION) {
+      throw new IllegalArgumentException("unsupported recording version " + version);
+    }
+    seed = buffer.getLong();
+    startTick = buffer.getLong();
+    int stateSize = buffer.getInt();
+    initialState = slice(buffer, stateSize);
+    events = buffer.slice();
+
+    long tick = startTick;
+    double duration = 0;
+    double time = 0;
+    int commands = 0;
+    while (true) {
+      long nextTick = tick + getVarLong(buffer);
+      time += (nextTick - tick) * duration;
+      tick = nextTick;
+      int code = buffer.get();
+      if (code == InputRecorder.END) {
+        break;
+      } else if (code == InputRecorder.DURATION) {
+        duration = buffer.getDouble();
+      } else if (code >= 0 && code < COMMANDS.length) {
+        commands++;
+      } else {
+        throw new IllegalArgumentException("unknown event code " + code);
+      }
+    }
+    endTick = tick;
+    finalHash = buffer.getLong();
+    commandCount = commands;
+    simulatedTime = time;
+  }
+
+  /** Reads a recording written by {@link InputRecorder#write}.
+   * @param in the stream holding the recording, read to its end
+   * @return the recording
+   * @throws IOException if the stream cannot be read
+   * @throws IllegalArgumentException if the stream does not hold a valid recording
+   */
+  public static InputRecording read(InputStream in) throws IOException {
+    return parse(ByteBuffer.wrap(in.readAllBytes()));
+  }
+
+  /** Reads a recording saved by {@link InputRecorder#save}.
+   * @param path the file holding the recording
+   * @return the recording
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the file does not hold a valid recording
+   */
+  public static InputRecording load(Path path) throws IOException {
+    return parse(ByteBuffer.wrap(Files.readAllBytes(path)));
+  }
+
+  private static InputRecording parse(ByteBuffer buffer) {
+    try {
+      return new InputRecording(buffer);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("truncated recording", e);
+    }
+  }
+
+
+  /** Replays the recording. Each tick is simulated by {@link Space#tick},
+   * as in the {@link Simulation}.
+   * @return a new space, in the state it had at the end of the recording
+   */
+  public Space replay() {
+    Space space = SpaceCodec.emptySpace(initialState, seed);
+    space.restore(initialState.duplicate());
+    ByteBuffer buffer = events.duplicate();
+    long tick = startTick;
+    double duration = 0;
+    while (true) {
+      long eventTick = tick + getVarLong(buffer);
+      for (; tick < eventTick; tick++) {
+        space.tick(duration);
+      }
+      int code = buffer.get();
+      if (code == InputRecorder.END) {
+        return space;
+      } else if (code == InputRecorder.DURATION) {
+        duration = buffer.getDouble();
+      } else {
+        COMMANDS[code].applyTo(space);
+      }
+    }
+  }
+
+  /**
+   * @param space a space, usually returned by {@link #replay()}
+   * @return whether the space is in the state the recorded space was at the end
+   */
+  public boolean matches(Space space) {
+    return SpaceCodec.hash(space) == finalHash;
+  }
+
+
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * @return the number of ticks recorded
+   */
+  public long getTickCount() {
+    return endTick - startTick;
+  }
+
+  /**
+   * @return the time simulated by the recorded ticks, in seconds
+   */
+  public double getSimulatedTime() {
+    return simulatedTime;
+  }
+
+  /**
+   * @return the number of commands recorded
+   */
+  public int getCommandCount() {
+    return commandCount;
+  }
+
+  /**
+   * @return the hash of the state of the recorded space at the end
+   */
+  public long getFinalHash() {
+    return finalHash;
+  }
+
+
+  private static ByteBuffer slice(ByteBuffer buffer, int length) {
+    ByteBuffer slice = buffer.slice();
+    slice.limit(length);
+    buffer.position(buffer.position() + length);
+    return slice;
+  }
+
+  /** Reads a long written by {@link InputRecorder#putVarLong}.
+   */
+  private static long getVarLong(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("malformed variable-length integer");
+  }
+
+}
@@ -0,0 +1,123 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations, in nanoseconds, by ranges of values, so that their
+ * percentiles can be read while they are being recorded. The memory used is
+ * fixed: recording a duration increments a counter and allocates nothing.
+ * Durations are recorded and read without locks, from any thread.
+ * <p>
+ * Durations below {@value #SUB_BUCKET_COUNT} nanoseconds have a counter
+ * each. Every longer power of two is cut into {@value #SUB_BUCKET_COUNT}
+ * ranges of the same width, so that a duration is known within about six
+ * percent whatever its magnitude. A percentile is given as the upper bound
+ * of the range containing it, and never exceeds the longest duration.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+
+  /**
+   * @param nanos a duration, negative durations counting as 0
+   */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    counts.incrementAndGet(bucketOf(value));
+    count.incrementAndGet();
+    long currentMax = max.get();
+    while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+      currentMax = max.get();
+    }
+  }
+
+  /**
+   * @return the number of durations recorded
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * @return the longest duration recorded, or 0
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @param quantile a fraction between 0 and 1, such as 0.99
+   * @return a duration that this fraction of the recorded durations does
+   * not exceed, or 0 if nothing was recorded
+   */
+  public long getPercentile(double quantile) {
+    long total = 0;
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      total += counts.get(bucket);
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= rank) {
+        return Math.min(upperBound(bucket), getMax());
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @return the number of durations recorded in a range
+   */
+  long getBucketCount(int bucket) {
+    return counts.get(bucket);
+  }
+
+  /**
+   * Forgets all the durations.
+   */
+  public void reset() {
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      counts.set(bucket, 0);
+    }
+    count.set(0);
+    max.set(0);
+  }
+
+
+  static int bucketOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  /**
+   * @return the smallest duration counted in a range
+   */
+  static long lowerBound(int bucket) {
+    if (bucket < SUB_BUCKET_COUNT) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKET_COUNT - 1;
+    return (long) (SUB_BUCKET_COUNT + bucket % SUB_BUCKET_COUNT) << shift;
+  }
+
+  /**
+   * @return the longest duration counted in a range
+   */
+  static long upperBound(int bucket) {
+    return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : lowerBound(bucket + 1) - 1;
+  }
+
+}
@@ -0,0 +1,109 @@
+package game;
+
+/**
+ * Measures what an autopilot sees of a space, as a fixed number of
+ * floats written into a caller's buffer:
+ * <ul>
+ *   <li>{@link #rays} casts rays from the spaceship, evenly spread around
+ *   its heading, and gives for each ray the distance to the first asteroid
+ *   hit, divided by the range of the rays (1 if nothing is hit);</li>
+ *   <li>{@link #spaceship} gives the state of the spaceship itself.</li>
+ * </ul>
+ * Every float written is between -1 and 1.
+ * Asteroids are seen as their bounding circles, and the toric space is
+ * taken into account: an asteroid is seen at its closest image. No object
+ * is allocated.
+ */
+public final class Observations {
+
+  /**
+   * The number of floats written by {@link #spaceship}.
+   */
+  public static final int SPACESHIP_FEATURE_COUNT = 6;
+
+  /**
+   * The speed mapped to 1 in the observations, faster speeds being
+   * clamped to 1.
+   */
+  private static final double SPEED_SCALE = 200;
+
+
+  private Observations() {
+  }
+
+
+  /** Casts rays from the spaceship.
+   * @param space the space to observe
+   * @param rayCount the number of rays, the first one along the heading
+   * @param range the length of the rays, in pixels
+   * @param out receives one normalized distance per ray
+   * @param offset the index in <em>out</em> of the first distance
+   */
+  public static void rays(Space space, int rayCount, double range, float[] out, int offset) {
+    Spaceship spaceship = space.getSpaceship();
+    double shipX = spaceship.getX();
+    double shipY = spaceship.getY();
+    double headingCosine = spaceship.getHeadingCosine();
+    double headingSine = spaceship.getHeadingSine();
+    double stepCosine = Math.cos(2 * Math.PI / rayCount);
+    double stepSine = Math.sin(2 * Math.PI / rayCount);
+    for (int ray = 0; ray < rayCount; ray++) {
+      out[offset + ray] = 1;
+    }
+    AsteroidField asteroids = space.getAsteroidField();
+    for (int slot = 0; slot < asteroids.size(); slot++) {
+      double radius = asteroids.getRadius(slot);
+      double dx = Space.closestImage(asteroids.getX(slot) - shipX, space.getWidth());
+      double dy = Space.closestImage(asteroids.getY(slot) - shipY, space.getHeight());
+      double distance2 = dx * dx + dy * dy;
+      double reach = range + radius;
+      if (distance2 > reach * reach) {
+        continue;
+      }
+      double inside2 = radius * radius;
+      double directionX = headingCosine;
+      double directionY = headingSine;
+      for (int ray = 0; ray < rayCount; ray++) {
+        if (ray > 0) {
+          double nextX = directionX * stepCosine - directionY * stepSine;
+          directionY = directionY * stepCosine + directionX * stepSine;
+          directionX = nextX;
+        }
+        double along = dx * directionX + dy * directionY;
+        double across2 = distance2 - along * along;
+        if (across2 > inside2) {
+          continue;
+        }
+        double hit = distance2 <= inside2 ? 0 : along - Math.sqrt(inside2 - across2);
+        if (hit >= 0 && hit < range) {
+          out[offset + ray] = Math.min(out[offset + ray], (float) (hit / range));
+        }
+      }
+    }
+  }
+
+  /** Describes the spaceship by {@link #SPACESHIP_FEATURE_COUNT} floats:
+   * its velocity (divided by 200 pixels per second and
+   * clamped between -1 and 1), the cosine and
+   * sine of its heading, its fuel between 0 and 1, and 1 if it is
+   * invulnerable, 0 otherwise.
+   * @param space the space to observe
+   * @param out receives the features
+   * @param offset the index in <em>out</em> of the first feature
+   */
+  public static void spaceship(Space space, float[] out, int offset) {
+    Spaceship spaceship = space.getSpaceship();
+    out[offset] = scaleSpeed(spaceship.getVelocityX());
+    out[offset + 1] = scaleSpeed(spaceship.getVelocityY());
+    out[offset + 2] = (float) spaceship.getHeadingCosine();
+    out[offset + 3] = (float) spaceship.getHeadingSine();
+    out[offset + 4] = (float) (spaceship.getFuelPercentage() / 100);
+    out[offset + 5] = spaceship.isInvulnerable() ? 1 : 0;
+  }
+
+
+  private static float scaleSpeed(double speed) {
+    return (float) Math.max(-1, Math.min(1, speed / SPEED_SCALE));
+  }
+
+}
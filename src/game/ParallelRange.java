@@ -0,0 +1,102 @@
+package game;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a loop over a range of indices, either sequentially or split into
+ * fork-join tasks. Loops are split only when a pool is given and the range
+ * is larger than {@link #THRESHOLD}, so that small worlds do not pay for
+ * the tasks. The body of the loop must treat each index independently of
+ * the others: the result is then the same, whichever way the range is split.
+ * <p>
+ * A split range is always cut into the same chunks, of {@link #THRESHOLD}
+ * indices except maybe the last one: chunk <em>k</em> starts at index
+ * <em>k * THRESHOLD</em>. A body can therefore keep results per chunk, and
+ * combine them afterwards in chunk order, whatever the order in which the
+ * chunks ran.
+ */
+final class ParallelRange {
+
+  /**
+   * The number of indices below which a range is not split anymore.
+   */
+  static final int THRESHOLD = 2048;
+
+  /**
+   * The body of a loop, applied to a sub-range of indices.
+   */
+  interface Body {
+    /**
+     * @param from the first index of the sub-range
+     * @param to the index following the last index of the sub-range
+     */
+    void run(int from, int to);
+  }
+
+
+  private ParallelRange() {
+  }
+
+
+  /**
+   * @param pool the pool running the tasks, or null for sequential loops
+   * @param count the number of indices
+   * @return whether a loop over <em>count</em> indices is split into tasks
+   */
+  static boolean isParallel(ForkJoinPool pool, int count) {
+    return pool != null && count > THRESHOLD;
+  }
+
+  /**
+   * @param pool the pool running the tasks, or null for sequential loops
+   * @param count the number of indices
+   * @return the number of chunks a loop over <em>count</em> indices is cut into
+   */
+  static int chunkCount(ForkJoinPool pool, int count) {
+    if (!isParallel(pool, count)) {
+      return 1;
+    }
+    return (count + THRESHOLD - 1) / THRESHOLD;
+  }
+
+  /** Runs a loop over the indices from 0 to count (excluded).
+   * @param pool the pool running the tasks, or null for a sequential loop
+   * @param count the number of indices
+   * @param body the body of the loop
+   */
+  static void forEach(ForkJoinPool pool, int count, Body body) {
+    if (isParallel(pool, count)) {
+      pool.invoke(new Task(body, 0, count));
+    } else {
+      body.run(0, count);
+    }
+  }
+
+
+  @SuppressWarnings("serial") // never serialized
+  private static class Task extends RecursiveAction {
+
+    private final Body body;
+    private final int from;
+    private final int to;
+
+    Task(Body body, int from, int to) {
+      this.body = body;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= THRESHOLD) {
+        body.run(from, to);
+        return;
+      }
+      int chunks = (to - from + THRESHOLD - 1) / THRESHOLD;
+      int middle = from + (chunks / 2) * THRESHOLD;
+      invokeAll(new Task(body, from, middle), new Task(body, middle, to));
+    }
+  }
+
+}
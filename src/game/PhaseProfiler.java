@@ -0,0 +1,106 @@
+package game;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Times the phases of a tick and of a frame, each into a
+ * {@link LatencyHistogram}. A phase is timed by reading {@link #start()}
+ * before it and passing the result to {@link #stop(Phase, long)} after it,
+ * which costs two reads of the clock and allocates nothing, so that the
+ * profiler can stay enabled while playing.
+ * <p>
+ * Phases are timed by the thread running them, the simulation thread or
+ * the JavaFX thread, and read by any thread.
+ */
+public class PhaseProfiler {
+
+  public enum Phase {
+    SPACE_UPDATE("Space.update"),
+    PROJECTILE_COLLISION("projectile collision"),
+    CANVAS_RENDER("CanvasView.render"),
+    INSPECTOR_RENDER("inspector.View.render");
+
+    private final String label;
+
+    Phase(String label) {
+      this.label = label;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+
+
+  public PhaseProfiler() {
+    for (Phase phase : Phase.values()) {
+      histograms.put(phase, new LatencyHistogram());
+    }
+  }
+
+
+  /**
+   * @return the time at which a phase starts, to pass to {@link #stop(Phase, long)}
+   */
+  public long start() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Records the duration of a phase.
+   * @param phase the phase that just ended
+   * @param start the value returned by {@link #start()} when it started
+   */
+  public void stop(Phase phase, long start) {
+    histograms.get(phase).record(System.nanoTime() - start);
+  }
+
+  /**
+   * @return the durations of a phase
+   */
+  public LatencyHistogram getHistogram(Phase phase) {
+    return histograms.get(phase);
+  }
+
+  /**
+   * Forgets the durations of all the phases.
+   */
+  public void reset() {
+    for (LatencyHistogram histogram : histograms.values()) {
+      histogram.reset();
+    }
+  }
+
+
+  /** Writes the durations of each phase into a text file: a summary line
+   * with the count, the median, the 99th percentile and the maximum, then
+   * a line per non-empty range, giving its bounds and its count.
+   * @param path the file receiving the histograms
+   * @throws IOException if the file cannot be written
+   */
+  public void dump(Path path) throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+      for (Phase phase : Phase.values()) {
+        LatencyHistogram histogram = histograms.get(phase);
+        writer.printf("%s: count=%d p50=%dns p99=%dns max=%dns%n",
+          phase.getLabel(), histogram.getCount(), histogram.getPercentile(0.5),
+          histogram.getPercentile(0.99), histogram.getMax());
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT; bucket++) {
+          long count = histogram.getBucketCount(bucket);
+          if (count > 0) {
+            writer.printf("  %d..%d ns: %d%n", LatencyHistogram.lowerBound(bucket),
+              LatencyHistogram.upperBound(bucket), count);
+          }
+        }
+      }
+    }
+  }
+
+}
@@ -2,36 +2,92 @@ package game;
 
 import tools.Vector;
 
+/**
+ * A projectile: either a handle on a projectile stored in a
+ * {@link ProjectilePool}, or a projectile built alone, holding its own
+ * values until it is added to a space.
+ */
 public class Projectile {
 
-    private Vector position;
-    private final Vector velocity;
+    private final ProjectilePool pool;
+    private final int slot;
+
+    /**
+     * The values of a projectile built alone, unused by handles.
+     */
+    private double x;
+    private double y;
+    private final double vx;
+    private final double vy;
     private double remainingLife;
 
+    /**
+     * Builds a projectile alone, belonging to no pool. Adding it to a space
+     * copies its values into the pool of the space. Firing from a space
+     * does not need such a projectile: see {@link Space#addProjectile(double, double, double, double)}.
+     */
     public Projectile(Vector position, Vector velocity) {
-        this.position = position;
-        this.velocity = velocity;
-        remainingLife = 1.25;
+        this.pool = null;
+        this.slot = -1;
+        this.x = position.getX();
+        this.y = position.getY();
+        this.vx = velocity.getX();
+        this.vy = velocity.getY();
+        this.remainingLife = ProjectilePool.PROJECTILE_LIFETIME;
+    }
+
+    Projectile(ProjectilePool pool, int slot) {
+        this.pool = pool;
+        this.slot = slot;
+        this.vx = 0;
+        this.vy = 0;
     }
 
     public Vector getPosition() {
-        return position;
+        return new Vector(getX(), getY());
     }
 
+    /**
+     * Moves the projectile. A projectile built alone belongs to no space,
+     * so it is not wrapped across the edges.
+     */
     public void update(double dt) {
-     position = position.add(velocity.multiply(dt)) ;
-     remainingLife -= dt;
+        if (pool != null) {
+            pool.update(slot, dt);
+            return;
+        }
+        x += vx * dt;
+        y += vy * dt;
+        remainingLife -= dt;
     }
 
     public boolean isAlive(double dt) {
-        return remainingLife<dt;
+        return getRemainingLife() < dt;
     }
 
     public boolean collides(Asteroid asteroid)
     {
-        return  asteroid.contains(getPosition());
+        return  asteroid.contains(getX(), getY());
     }
 
+    double getX() {
+        return pool == null ? x : pool.getSlotX(slot);
+    }
 
-}
+    double getY() {
+        return pool == null ? y : pool.getSlotY(slot);
+    }
 
+    double getVelocityX() {
+        return pool == null ? vx : pool.getSlotVelocityX(slot);
+    }
+
+    double getVelocityY() {
+        return pool == null ? vy : pool.getSlotVelocityY(slot);
+    }
+
+    double getRemainingLife() {
+        return pool == null ? remainingLife : pool.getSlotRemainingLife(slot);
+    }
+
+}
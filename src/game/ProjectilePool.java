@@ -0,0 +1,420 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Stores the projectiles flying in space, in a ring buffer of fixed
+ * capacity made of parallel arrays of primitive values. All projectiles
+ * have the same lifetime, so they die in the order they were fired: dead
+ * projectiles are removed from the head of the ring, and new projectiles
+ * are appended at its tail. Neither operation allocates any object.
+ * <p>
+ * Projectiles hitting an asteroid are first marked, then removed all at
+ * once by compacting the ring, in a way that preserves the order of the
+ * other projectiles.
+ * <p>
+ * Like every item of the toric space, a moving projectile is kept at
+ * canonical coordinates, so that collisions are found wherever it crosses
+ * an edge of the space.
+ * <p>
+ * A projectile copied with {@link #add(Projectile)} may have less life left
+ * than the projectiles fired before it. The pool then notes that lives are
+ * out of order, and removes dead projectiles by compacting the ring too,
+ * until the lives are in order again.
+ * <p>
+ * Objects of class {@link Projectile} are handles over a slot of the ring.
+ * As projectiles move from slot to slot when the ring is compacted, handles
+ * obtained from a pool should not be kept from one update to the next.
+ */
+public class ProjectilePool {
+
+  /**
+   * The duration, in seconds, for which a projectile flies.
+   */
+  public static final double PROJECTILE_LIFETIME = 1.25;
+
+  /**
+   * The default capacity, enough for thousands of shots per second.
+   */
+  public static final int DEFAULT_CAPACITY = 8192;
+
+  /**
+   * The capacity is a power of two, so that slot = (head + index) & mask.
+   */
+  private final int mask;
+  private final double width;
+  private final double height;
+  private final double[] x;
+  private final double[] y;
+  private final double[] vx;
+  private final double[] vy;
+  private final double[] remainingLife;
+  private final boolean[] isHit;
+  private final Projectile[] handles;
+
+  private int head;
+  private int count;
+
+  /**
+   * Whether some projectile has less life left than one fired before it,
+   * so that dead projectiles are not all at the head of the ring.
+   */
+  private boolean isLifeOrderBroken;
+
+  /**
+   * The time delay of the current update, and the loop body of
+   * {@link #update(double, ForkJoinPool)}, built once.
+   */
+  private double updateDuration;
+  private final ParallelRange.Body updateRange = this::updateRange;
+
+  private final List<Projectile> asList = new AbstractList<>() {
+    @Override
+    public Projectile get(int index) {
+      return ProjectilePool.this.get(index);
+    }
+
+    @Override
+    public int size() {
+      return count;
+    }
+  };
+
+
+  public ProjectilePool() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity the maximal number of projectiles, rounded up to a power of two.
+   *                 When the pool is full, firing removes the oldest projectile.
+   */
+  public ProjectilePool(int capacity) {
+    this(capacity, Space.SPACE_WIDTH, Space.SPACE_HEIGHT);
+  }
+
+  /**
+   * @param capacity the maximal number of projectiles, rounded up to a power of two
+   * @param width the width of the toric space of the projectiles
+   * @param height the height of the toric space of the projectiles
+   */
+  public ProjectilePool(int capacity, double width, double height) {
+    this.width = width;
+    this.height = height;
+    int size = 1;
+    while (size < capacity) {
+      size = size << 1;
+    }
+    mask = size - 1;
+    x = new double[size];
+    y = new double[size];
+    vx = new double[size];
+    vy = new double[size];
+    remainingLife = new double[size];
+    isHit = new boolean[size];
+    handles = new Projectile[size];
+  }
+
+
+  /**
+   * @return the number of projectiles in the pool
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * @return the maximal number of projectiles in the pool
+   */
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  /**
+   * @return an unmodifiable list view of the projectiles, from the oldest to the newest
+   */
+  public List<Projectile> asList() {
+    return asList;
+  }
+
+  /**
+   * @param index the index of a projectile, 0 being the oldest one
+   * @return a handle on the projectile
+   */
+  public Projectile get(int index) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("no projectile at index " + index);
+    }
+    int slot = slot(index);
+    if (handles[slot] == null) {
+      handles[slot] = new Projectile(this, slot);
+    }
+    return handles[slot];
+  }
+
+  private int slot(int index) {
+    return (head + index) & mask;
+  }
+
+
+  /** Fires a new projectile.
+   * @param x the abscissa of the starting position
+   * @param y the ordinate of the starting position
+   * @param vx the abscissa of the velocity
+   * @param vy the ordinate of the velocity
+   */
+  public void spawn(double x, double y, double vx, double vy) {
+    spawn(x, y, vx, vy, PROJECTILE_LIFETIME);
+  }
+
+  private void spawn(double x, double y, double vx, double vy, double remainingLife) {
+    if (count > mask) {
+      head = (head + 1) & mask;
+      count--;
+    }
+    if (count > 0 && remainingLife < this.remainingLife[slot(count - 1)]) {
+      isLifeOrderBroken = true;
+    }
+    int slot = slot(count++);
+    this.x[slot] = x;
+    this.y[slot] = y;
+    this.vx[slot] = vx;
+    this.vy[slot] = vy;
+    this.remainingLife[slot] = remainingLife;
+    this.isHit[slot] = false;
+  }
+
+  /** Adds a copy of a projectile to the pool.
+   * @param projectile a projectile, from any pool or built alone
+   */
+  public void add(Projectile projectile) {
+    spawn(projectile.getX(), projectile.getY(),
+      projectile.getVelocityX(), projectile.getVelocityY(),
+      projectile.getRemainingLife());
+  }
+
+
+  /**
+   * Simulates the effect of a small time delay <em>dt</em> upon all
+   * the projectiles.
+   *
+   * @param dt the time delay to simulate.
+   */
+  public void update(double dt) {
+    update(dt, null);
+  }
+
+  /**
+   * Same as {@link #update(double)}, splitting the projectiles among the
+   * workers of a fork-join pool when there are enough of them.
+   *
+   * @param dt the time delay to simulate.
+   * @param pool the pool running the update, or null for a sequential update
+   */
+  public void update(double dt, ForkJoinPool pool) {
+    updateDuration = dt;
+    ParallelRange.forEach(pool, count, updateRange);
+  }
+
+  private void updateRange(int from, int to) {
+    for (int index = from; index < to; index++) {
+      update(slot(index), updateDuration);
+    }
+  }
+
+  void update(int slot, double dt) {
+    x[slot] = Space.toricRemap(x[slot] + vx[slot] * dt, width);
+    y[slot] = Space.toricRemap(y[slot] + vy[slot] * dt, height);
+    remainingLife[slot] -= dt;
+  }
+
+
+  /**
+   * Removes all the projectiles.
+   */
+  public void clear() {
+    head = 0;
+    count = 0;
+    isLifeOrderBroken = false;
+  }
+
+  /**
+   * Removes the projectiles at the end of their lifetime.
+   */
+  public void removeDead() {
+    if (isLifeOrderBroken) {
+      removeDeadOutOfOrder();
+      return;
+    }
+    while (count > 0 && remainingLife[head] < 0) {
+      head = (head + 1) & mask;
+      count--;
+    }
+  }
+
+  /**
+   * Removes the dead projectiles wherever they are, preserving the order
+   * of the other ones, and checks whether the remaining lives are in order.
+   */
+  private void removeDeadOutOfOrder() {
+    for (int index = 0; index < count; index++) {
+      if (remainingLife[slot(index)] < 0) {
+        markHit(index);
+      }
+    }
+    removeHits();
+    isLifeOrderBroken = false;
+    for (int index = 1; index < count; index++) {
+      if (remainingLife[slot(index)] < remainingLife[slot(index - 1)]) {
+        isLifeOrderBroken = true;
+        break;
+      }
+    }
+  }
+
+
+  /** Marks a projectile as hitting an asteroid.
+   * @param index the index of the projectile
+   */
+  void markHit(int index) {
+    isHit[slot(index)] = true;
+  }
+
+  /**
+   * Removes all the projectiles marked as hitting an asteroid, preserving
+   * the order of the other ones.
+   */
+  void removeHits() {
+    int kept = 0;
+    for (int index = 0; index < count; index++) {
+      int slot = slot(index);
+      if (isHit[slot]) {
+        isHit[slot] = false;
+        continue;
+      }
+      if (kept != index) {
+        int target = slot(kept);
+        x[target] = x[slot];
+        y[target] = y[slot];
+        vx[target] = vx[slot];
+        vy[target] = vy[slot];
+        remainingLife[target] = remainingLife[slot];
+      }
+      kept++;
+    }
+    count = kept;
+  }
+
+
+  /**
+   * @return the number of bytes written by {@link #write(ByteBuffer)}
+   */
+  int getEncodedSize() {
+    return Integer.BYTES + 5 * count * Double.BYTES;
+  }
+
+  /** Writes the projectiles, from the oldest to the newest, see {@link SpaceCodec}.
+   * @param buffer the buffer receiving the projectiles
+   */
+  void write(ByteBuffer buffer) {
+    buffer.putInt(count);
+    putRing(buffer, x);
+    putRing(buffer, y);
+    putRing(buffer, vx);
+    putRing(buffer, vy);
+    putRing(buffer, remainingLife);
+  }
+
+  /**
+   * Writes the values of the projectiles in index order, as the two
+   * parts of the ring on each side of the end of the arrays.
+   */
+  private void putRing(ByteBuffer buffer, double[] values) {
+    int firstPart = Math.min(count, mask + 1 - head);
+    SpaceCodec.putDoubles(buffer, values, head, firstPart);
+    SpaceCodec.putDoubles(buffer, values, 0, count - firstPart);
+  }
+
+  /** Replaces all the projectiles of the pool by projectiles written by
+   * {@link #write(ByteBuffer)}, in the same order.
+   * @param buffer the buffer holding the projectiles
+   * @throws IllegalArgumentException if there are more projectiles than the capacity
+   */
+  void read(ByteBuffer buffer) {
+    int newCount = buffer.getInt();
+    if (newCount > mask + 1) {
+      throw new IllegalArgumentException(
+        newCount + " projectiles do not fit in a pool of capacity " + (mask + 1));
+    }
+    head = 0;
+    count = newCount;
+    SpaceCodec.getDoubles(buffer, x, 0, count);
+    SpaceCodec.getDoubles(buffer, y, 0, count);
+    SpaceCodec.getDoubles(buffer, vx, 0, count);
+    SpaceCodec.getDoubles(buffer, vy, 0, count);
+    SpaceCodec.getDoubles(buffer, remainingLife, 0, count);
+    Arrays.fill(isHit, 0, count, false);
+    isLifeOrderBroken = false;
+    for (int index = 1; index < count; index++) {
+      isLifeOrderBroken |= remainingLife[index] < remainingLife[index - 1];
+    }
+  }
+
+
+  /**
+   * @param index the index of a projectile
+   * @return the abscissa of the projectile
+   */
+  double getX(int index) {
+    return x[slot(index)];
+  }
+
+  /**
+   * @param index the index of a projectile
+   * @return the ordinate of the projectile
+   */
+  double getY(int index) {
+    return y[slot(index)];
+  }
+
+  /**
+   * @param index the index of a projectile
+   * @return the abscissa of the velocity of the projectile
+   */
+  double getVelocityX(int index) {
+    return vx[slot(index)];
+  }
+
+  /**
+   * @param index the index of a projectile
+   * @return the ordinate of the velocity of the projectile
+   */
+  double getVelocityY(int index) {
+    return vy[slot(index)];
+  }
+
+  double getSlotX(int slot) {
+    return x[slot];
+  }
+
+  double getSlotY(int slot) {
+    return y[slot];
+  }
+
+  double getSlotVelocityX(int slot) {
+    return vx[slot];
+  }
+
+  double getSlotVelocityY(int slot) {
+    return vy[slot];
+  }
+
+  double getSlotRemainingLife(int slot) {
+    return remainingLife[slot];
+  }
+
+}
@@ -4,17 +4,37 @@ package game;
 import tools.Polygon;
 import tools.Vector;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Objects of this class can generate random values (polygons, asteroids,
  * positions,...) with limited parametrization.
+ * <p>
+ * Values are drawn from a SplitMix64 sequence, whose whole state is a
+ * seed and an odd increment, the gamma: a generator built with a given
+ * seed always produces the same values. A generator is not thread-safe,
+ * but it can be {@link #split() split} into independent generators, one
+ * per task or thread, without any shared state. As in
+ * {@link java.util.SplittableRandom}, each new generator gets a gamma of
+ * its own, so that it walks another sequence than its parent, rather than
+ * the same sequence from another point.
  */
 public class RandomGenerator {
 
-  private static final Random gen = new Random();
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  /**
+   * The number of bytes written by {@link #write(ByteBuffer)}.
+   */
+  static final int ENCODED_SIZE = 2 * Long.BYTES + Double.BYTES + 1;
+
+  private long state;
+  private long gamma;
+  private double nextGaussian;
+  private boolean hasNextGaussian;
 
   // Asteroid parameters
   private static final double STANDARD_ANGULAR_VELOCITY = 10;
@@ -26,15 +46,172 @@ public class RandomGenerator {
   private static final double MIN_CENTER_TO_VERTEX_DISTANCE = 10;
   private static final double MAX_CENTER_TO_VERTEX_DISTANCE = 20;
 
+  /**
+   * Buffers receiving the vertices of the shapes generated in bulk.
+   */
+  private final double[] shapeXs = new double[MAX_VERTEX_COUNT];
+  private final double[] shapeYs = new double[MAX_VERTEX_COUNT];
+
+
+  /**
+   * Builds a generator with an unpredictable seed.
+   */
+  public RandomGenerator() {
+    this(ThreadLocalRandom.current().nextLong());
+  }
+
+  /**
+   * Builds a generator producing always the same values for the same seed.
+   *
+   * @param seed the seed of the generator
+   */
+  public RandomGenerator(long seed) {
+    this(seed, GOLDEN_GAMMA);
+  }
+
+  private RandomGenerator(long seed, long gamma) {
+    this.state = seed;
+    this.gamma = gamma;
+  }
+
+
+  /**
+   * Builds a new generator, whose values are independent of the values
+   * of this generator. The new generator only depends on the state of
+   * this one, so splitting is as reproducible as drawing values.
+   *
+   * @return the new generator
+   */
+  public RandomGenerator split() {
+    return new RandomGenerator(nextLong(), mixGamma(nextSeed()));
+  }
+
+  /**
+   * Same as {@link #split()}, turning an existing generator into the new
+   * one rather than allocating it.
+   *
+   * @param child the generator to overwrite, possibly this generator
+   */
+  void split(RandomGenerator child) {
+    long childSeed = nextLong();
+    long childGamma = mixGamma(nextSeed());
+    child.set(childSeed, childGamma);
+  }
+
+  /**
+   * Restarts the generator, which then produces the same values as a new
+   * generator built with the same seed.
+   *
+   * @param seed the new seed
+   */
+  void reseed(long seed) {
+    set(seed, GOLDEN_GAMMA);
+  }
+
+  private void set(long seed, long gamma) {
+    state = seed;
+    this.gamma = gamma;
+    hasNextGaussian = false;
+  }
+
+  /**
+   * Derives an odd gamma from a number, avoiding gammas whose bits do
+   * not change often enough, as {@link java.util.SplittableRandom} does.
+   */
+  private static long mixGamma(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    int transitions = Long.bitCount(z ^ (z >>> 1));
+    return transitions < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
+
+
+  /** Writes the state of the generator, see {@link SpaceCodec}.
+   * @param buffer the buffer receiving the state
+   */
+  void write(ByteBuffer buffer) {
+    buffer.putLong(state);
+    buffer.putLong(gamma);
+    buffer.putDouble(nextGaussian);
+    buffer.put((byte) (hasNextGaussian ? 1 : 0));
+  }
+
+  /** Replaces the state of the generator by a state written by
+   * {@link #write(ByteBuffer)}.
+   * @param buffer the buffer holding the state
+   */
+  void read(ByteBuffer buffer) {
+    state = buffer.getLong();
+    gamma = buffer.getLong();
+    nextGaussian = buffer.getDouble();
+    hasNextGaussian = buffer.get() != 0;
+  }
+
+
+  /**
+   * @return a random long, all values being equally likely
+   */
+  public long nextLong() {
+    long z = nextSeed();
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private long nextSeed() {
+    state += gamma;
+    return state;
+  }
+
+  /**
+   * @return a random double between 0 (included) and 1 (excluded), with uniform distribution
+   */
+  public double nextDouble() {
+    return (nextLong() >>> 11) * 0x1.0p-53;
+  }
+
+  /**
+   * @param bound the number of possible values, positive
+   * @return a random integer between 0 (included) and bound (excluded), with uniform distribution
+   */
+  public int nextInt(int bound) {
+    return (int) (((nextLong() >>> 33) * bound) >>> 31);
+  }
+
+  /**
+   * @return a random double with standard normal distribution
+   */
+  public double nextGaussian() {
+    if (hasNextGaussian) {
+      hasNextGaussian = false;
+      return nextGaussian;
+    }
+    double v1;
+    double v2;
+    double s;
+    do {
+      v1 = 2 * nextDouble() - 1;
+      v2 = 2 * nextDouble() - 1;
+      s = v1 * v1 + v2 * v2;
+    } while (s >= 1 || s == 0);
+    double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+    nextGaussian = v2 * multiplier;
+    hasNextGaussian = true;
+    return v1 * multiplier;
+  }
+
 
   /**
-   * Generates a random asteroid.
+   * Generates a random asteroid, anywhere in a space.
    *
    * @param size a size factor (linear in diameter)
+   * @param width the width of the space
+   * @param height the height of the space
    * @return the generated asteroid
    */
-  public Asteroid asteroid(double size) {
-    return asteroid(position(),size);
+  public Asteroid asteroid(double size, double width, double height) {
+    return asteroid(position(width, height), size);
   }
 
 
@@ -52,6 +229,80 @@ public class RandomGenerator {
   }
 
 
+  /** Generates random asteroids directly into a field, without building
+   * any intermediate object. The centers of the asteroids are not closer
+   * than a given distance to a point, for instance the spaceship.
+   *
+   * @param field the field receiving the asteroids
+   * @param count the number of asteroids
+   * @param size the size of the asteroids (linear in diameter)
+   * @param avoided a point to keep away from the asteroids
+   * @param minimalDistance the minimal distance from the point to the centers
+   */
+  public void asteroids(AsteroidField field, int count, double size,
+                        Vector avoided, double minimalDistance) {
+    asteroids(field, count, size, avoided, minimalDistance, this);
+  }
+
+  /** Same as {@link #asteroids(AsteroidField, int, double, Vector, double)},
+   * drawing the shapes of the asteroids from another generator, so that
+   * their numbers of vertices do not change the other values drawn.
+   *
+   * @param field the field receiving the asteroids
+   * @param count the number of asteroids
+   * @param size the size of the asteroids (linear in diameter)
+   * @param avoided a point to keep away from the asteroids
+   * @param minimalDistance the minimal distance from the point to the centers
+   * @param shapes the generator drawing the shapes, possibly this generator
+   */
+  public void asteroids(AsteroidField field, int count, double size,
+                        Vector avoided, double minimalDistance, RandomGenerator shapes) {
+    field.reserve(count);
+    for (int i = 0; i < count; i++) {
+      double x;
+      double y;
+      do {
+        x = nextDouble() * field.getWidth();
+        y = nextDouble() * field.getHeight();
+      } while (Math.hypot(x - avoided.getX(), y - avoided.getY()) < minimalDistance);
+      addAsteroid(field, x, y, size, shapes);
+    }
+  }
+
+  /** Generates random asteroids at a given position directly into a field,
+   * without building any intermediate object.
+   *
+   * @param field the field receiving the asteroids
+   * @param count the number of asteroids
+   * @param x the abscissa of the centers
+   * @param y the ordinate of the centers
+   * @param size the size of the asteroids (linear in diameter)
+   * @param shapes the generator drawing the shapes, possibly this generator
+   */
+  public void asteroids(AsteroidField field, int count, double x, double y, double size,
+                        RandomGenerator shapes) {
+    field.reserve(count);
+    for (int i = 0; i < count; i++) {
+      addAsteroid(field, x, y, size, shapes);
+    }
+  }
+
+  private void addAsteroid(AsteroidField field, double x, double y, double size,
+                           RandomGenerator shapes) {
+    int nbVertices =
+      shapes.nextInt(MAX_VERTEX_COUNT - MIN_VERTEX_COUNT + 1) + MIN_VERTEX_COUNT;
+    for (int i = 0; i < nbVertices; i++) {
+      double distance = size * shapes.polygonalRadius();
+      double rad = Math.toRadians(360. * i / nbVertices);
+      shapeXs[i] = Math.cos(rad) * distance;
+      shapeYs[i] = -Math.sin(rad) * distance;
+    }
+    double vx = nextGaussian() * STANDARD_SPEED;
+    double vy = nextGaussian() * STANDARD_SPEED;
+    field.add(x, y, vx, vy, angularVelocity(), size, shapeXs, shapeYs, nbVertices);
+  }
+
+
 
   /** Generates a random polygon.
    * @param minVertexCount the minimum number of vertices
@@ -61,7 +312,7 @@ public class RandomGenerator {
    */
   public Polygon polygon(int minVertexCount, int maxVertexCount, double size) {
     int nbVertex =
-      gen.nextInt(maxVertexCount - minVertexCount + 1) + minVertexCount;
+      nextInt(maxVertexCount - minVertexCount + 1) + minVertexCount;
     return polygon(nbVertex, size);
   }
 
@@ -84,14 +335,12 @@ public class RandomGenerator {
 
 
   /**
-   * @return a random position in space
+   * @param width the width of the space
+   * @param height the height of the space
+   * @return a random position in a space of the given size
    */
-  private Vector position() {
-    Vector center = new Vector(
-      gen.nextDouble() * Space.SPACE_WIDTH,
-      gen.nextDouble() * Space.SPACE_HEIGHT
-    );
-    return Space.toricRemap(center);
+  Vector position(double width, double height) {
+    return new Vector(nextDouble() * width, nextDouble() * height);
   }
 
 
@@ -99,7 +348,7 @@ public class RandomGenerator {
    * @return a random angular velocity, with uniform distribution.
    */
   private double angularVelocity() {
-    return gen.nextGaussian() * STANDARD_ANGULAR_VELOCITY;
+    return nextGaussian() * STANDARD_ANGULAR_VELOCITY;
   }
 
 
@@ -108,14 +357,14 @@ public class RandomGenerator {
    */
   private Vector velocity() {
     return new Vector(
-      gen.nextGaussian() * STANDARD_SPEED,
-      gen.nextGaussian() * STANDARD_SPEED
+      nextGaussian() * STANDARD_SPEED,
+      nextGaussian() * STANDARD_SPEED
     );
   }
 
 
   private double polygonalRadius() {
-    return gen.nextDouble()
+    return nextDouble()
       * (MAX_CENTER_TO_VERTEX_DISTANCE
       - MIN_CENTER_TO_VERTEX_DISTANCE
     )
@@ -0,0 +1,348 @@
+package game;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Keeps the recent states of a space, tick by tick, so that a paused game
+ * can be stepped backward and scrubbed through. The memory used is bounded
+ * by a budget: when it is exhausted, the oldest states are forgotten.
+ * <p>
+ * Only the latest state is kept whole, as a snapshot (see {@link SpaceCodec}).
+ * Each older state is kept as its difference with the state that followed
+ * it: the XOR of both snapshots, in which the bytes that did not change are
+ * zeros, compressed by run-length encoding. Shapes, sizes and velocities
+ * mostly stay the same from one tick to the next, so a difference is much
+ * smaller than a snapshot, and capturing a tick costs a snapshot and a scan
+ * of its bytes.
+ * <p>
+ * A difference holds, as variable-length integers, the length of the older
+ * snapshot, then pairs of runs over the bytes both snapshots have: a number
+ * of unchanged bytes, and a number of changed bytes followed by their XOR.
+ * The bytes of the older snapshot beyond the length of the newer one
+ * follow as they are.
+ * <p>
+ * Snapshots are compared and combined eight bytes at a time where possible.
+ * Differences are stored one after the other in a circular byte array of
+ * the size of the budget. Once the buffers have grown to the size of the
+ * snapshots, capturing and restoring allocate almost nothing.
+ */
+public class RewindBuffer {
+
+  /**
+   * The default budget, enough for minutes of a standard game.
+   */
+  public static final int DEFAULT_BUDGET = 32 << 20;
+
+  /**
+   * A run of changed bytes goes on over unchanged bytes, unless there are
+   * at least this many of them, so that short runs do not cost more to
+   * encode than the bytes they skip.
+   */
+  private static final int MIN_UNCHANGED_RUN = 4;
+
+  /**
+   * Reads and writes byte arrays as longs, at any offset.
+   */
+  private static final VarHandle LONGS =
+    MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private final byte[] arena;
+  private int writePosition;
+
+  /**
+   * The differences, in a ring from the oldest to the newest: the
+   * difference number i gives the state of tick (oldestTick + i) from the
+   * state of the following tick.
+   */
+  private int[] starts = new int[64];
+  private int[] lengths = new int[64];
+  private int head;
+  private int count;
+
+  private long newestTick = -1;
+
+  /**
+   * The snapshot of the newest state, a buffer for the next snapshot, a
+   * buffer for the difference being encoded, and a buffer for the states
+   * rebuilt when rewinding.
+   */
+  private byte[] newest = new byte[0];
+  private int newestLength;
+  private byte[] next = new byte[0];
+  private byte[] delta = new byte[0];
+  private byte[] rebuilt = new byte[0];
+  private int rebuiltLength;
+
+  /**
+   * The position in the arena of the next byte of the difference being decoded.
+   */
+  private int cursor;
+
+
+  public RewindBuffer() {
+    this(DEFAULT_BUDGET);
+  }
+
+  /**
+   * @param budget the number of bytes available to store the differences
+   */
+  public RewindBuffer(int budget) {
+    arena = new byte[budget];
+  }
+
+
+  /**
+   * @return the oldest tick whose state is kept, or -1 if there is none
+   */
+  public long getOldestTick() {
+    return newestTick < 0 ? -1 : newestTick - count;
+  }
+
+  /**
+   * @return the newest tick whose state is kept, or -1 if there is none
+   */
+  public long getNewestTick() {
+    return newestTick;
+  }
+
+  /**
+   * @return the number of bytes used by the differences
+   */
+  public long getUsedBytes() {
+    long used = 0;
+    for (int i = 0; i < count; i++) {
+      used += lengths[ring(i)];
+    }
+    return used;
+  }
+
+  /**
+   * Forgets all the states.
+   */
+  public void clear() {
+    count = 0;
+    head = 0;
+    writePosition = 0;
+    newestTick = -1;
+  }
+
+
+  /** Keeps the state of a space. States are usually captured at
+   * consecutive ticks; capturing a tick already kept, after rewinding,
+   * forgets the states following it, as the game now takes another course.
+   * @param space the space
+   * @param tick the index of the tick that produced the state of the space
+   */
+  public void capture(Space space, long tick) {
+    if (tick <= newestTick && tick > getOldestTick()) {
+      truncate(tick - 1);
+    } else if (tick != newestTick + 1) {
+      clear();
+    }
+    int length = SpaceCodec.size(space);
+    if (next.length < length) {
+      next = new byte[2 * length];
+    }
+    SpaceCodec.write(space, ByteBuffer.wrap(next));
+    if (newestTick >= 0) {
+      add(encode(next, length, newest, newestLength));
+    }
+    byte[] previous = newest;
+    newest = next;
+    next = previous;
+    newestLength = length;
+    newestTick = tick;
+  }
+
+  /** Restores the state of a kept tick into a space. The kept states do
+   * not change, so that the space can be moved back and forth in time.
+   * @param space the space receiving the state
+   * @param tick a tick between {@link #getOldestTick()} and {@link #getNewestTick()}
+   */
+  public void restore(Space space, long tick) {
+    rebuild(tick);
+    space.restore(ByteBuffer.wrap(rebuilt, 0, rebuiltLength));
+  }
+
+
+  /**
+   * Rebuilds the snapshot of a kept tick into the buffer rebuilt, by
+   * applying the differences from the newest state backward.
+   */
+  private void rebuild(long tick) {
+    if (tick < getOldestTick() || tick > newestTick || newestTick < 0) {
+      throw new IllegalArgumentException("tick " + tick + " not kept");
+    }
+    if (rebuilt.length < newestLength) {
+      rebuilt = new byte[2 * newestLength];
+    }
+    System.arraycopy(newest, 0, rebuilt, 0, newestLength);
+    rebuiltLength = newestLength;
+    for (long t = newestTick - 1; t >= tick; t--) {
+      int index = ring((int) (t - getOldestTick()));
+      decode(starts[index]);
+    }
+  }
+
+  /**
+   * Forgets the states following a tick, the state of this tick becoming
+   * the newest one.
+   */
+  private void truncate(long tick) {
+    rebuild(tick);
+    int kept = (int) (tick - getOldestTick());
+    if (kept < count) {
+      writePosition = starts[ring(kept)];
+    }
+    count = kept;
+    byte[] previous = newest;
+    newest = rebuilt;
+    rebuilt = previous;
+    newestLength = rebuiltLength;
+    newestTick = tick;
+  }
+
+
+  /**
+   * Encodes into the buffer delta the difference giving the older snapshot
+   * from the newer one.
+   * @return the length of the difference
+   */
+  private int encode(byte[] newer, int newerLength, byte[] older, int olderLength) {
+    int common = Math.min(newerLength, olderLength);
+    int maxLength = 3 * InputRecorder.MAX_VARINT_SIZE + 2 * common + olderLength - common;
+    if (delta.length < maxLength) {
+      delta = new byte[2 * maxLength];
+    }
+    int out = InputRecorder.putVarLong(delta, 0, olderLength);
+    int i = 0;
+    while (i < common) {
+      int unchangedStart = i;
+      while (i + Long.BYTES <= common
+        && (long) LONGS.get(newer, i) == (long) LONGS.get(older, i)) {
+        i += Long.BYTES;
+      }
+      while (i < common && newer[i] == older[i]) {
+        i++;
+      }
+      int changedStart = i;
+      int unchanged = 0;
+      while (i < common && unchanged < MIN_UNCHANGED_RUN) {
+        unchanged = newer[i] == older[i] ? unchanged + 1 : 0;
+        i++;
+      }
+      if (unchanged == MIN_UNCHANGED_RUN) {
+        i -= MIN_UNCHANGED_RUN;
+      }
+      out = InputRecorder.putVarLong(delta, out, changedStart - unchangedStart);
+      out = InputRecorder.putVarLong(delta, out, i - changedStart);
+      int j = changedStart;
+      for (; j + Long.BYTES <= i; j += Long.BYTES, out += Long.BYTES) {
+        LONGS.set(delta, out, (long) LONGS.get(newer, j) ^ (long) LONGS.get(older, j));
+      }
+      for (; j < i; j++) {
+        delta[out++] = (byte) (newer[j] ^ older[j]);
+      }
+    }
+    System.arraycopy(older, common, delta, out, olderLength - common);
+    return out + olderLength - common;
+  }
+
+  /**
+   * Applies to the buffer rebuilt the difference stored at a position of
+   * the arena, giving the snapshot of the previous tick.
+   */
+  private void decode(int position) {
+    cursor = position;
+    int olderLength = (int) getVarLong();
+    int common = Math.min(rebuiltLength, olderLength);
+    if (rebuilt.length < olderLength) {
+      rebuilt = Arrays.copyOf(rebuilt, 2 * olderLength);
+    }
+    int i = 0;
+    while (i < common) {
+      i += (int) getVarLong();
+      int changed = (int) getVarLong();
+      int j = 0;
+      for (; j + Long.BYTES <= changed; j += Long.BYTES) {
+        LONGS.set(rebuilt, i + j, (long) LONGS.get(rebuilt, i + j) ^ (long) LONGS.get(arena, cursor + j));
+      }
+      for (; j < changed; j++) {
+        rebuilt[i + j] ^= arena[cursor + j];
+      }
+      cursor += changed;
+      i += changed;
+    }
+    System.arraycopy(arena, cursor, rebuilt, common, olderLength - common);
+    rebuiltLength = olderLength;
+  }
+
+  private long getVarLong() {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = arena[cursor++];
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+
+  /**
+   * Copies the difference just encoded into the arena, after the newest
+   * one, forgetting the oldest differences in its way.
+   */
+  private void add(int length) {
+    if (length > arena.length) {
+      count = 0;
+      head = 0;
+      writePosition = 0;
+      return;
+    }
+    if (writePosition + length > arena.length) {
+      while (count > 0 && starts[head] >= writePosition) {
+        removeOldest();
+      }
+      writePosition = 0;
+    }
+    while (count > 0 && starts[head] >= writePosition
+      && starts[head] < writePosition + length) {
+      removeOldest();
+    }
+    if (count == starts.length) {
+      grow();
+    }
+    int index = ring(count++);
+    starts[index] = writePosition;
+    lengths[index] = length;
+    System.arraycopy(delta, 0, arena, writePosition, length);
+    writePosition += length;
+  }
+
+  private void removeOldest() {
+    head = (head + 1) % starts.length;
+    count--;
+  }
+
+  private void grow() {
+    int[] newStarts = new int[2 * starts.length];
+    int[] newLengths = new int[2 * lengths.length];
+    for (int i = 0; i < count; i++) {
+      newStarts[i] = starts[ring(i)];
+      newLengths[i] = lengths[ring(i)];
+    }
+    starts = newStarts;
+    lengths = newLengths;
+    head = 0;
+  }
+
+  private int ring(int index) {
+    return (head + index) % starts.length;
+  }
+
+}
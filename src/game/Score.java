@@ -1,11 +1,25 @@
 package game;
 
+import java.nio.ByteBuffer;
+
 public class Score {
+    /**
+     * The number of bytes written by {@link #write(ByteBuffer)}.
+     */
+    static final int ENCODED_SIZE = Double.BYTES + 2 * Integer.BYTES;
+
     private double score;
     private int multiplier;
     private int multiplierTimer;
 
     public Score() {
+        reset();
+    }
+
+    /**
+     * Puts the score back in its initial state.
+     */
+    void reset() {
         score = 0;
         multiplier = 1;
         multiplierTimer = 3;
@@ -37,6 +51,35 @@ public class Score {
 
     }
 
+    /**
+     * Same as calling {@link #notifyAsteroidHit()} once per hit: all the
+     * terms are integers, so adding them at once gives the same score.
+     *
+     * @param hitCount the number of asteroids hit
+     */
+    public void notifyAsteroidHits(int hitCount) {
+        addPoints(10. * hitCount);
+    }
+
+    /** Writes the state of the score, see {@link SpaceCodec}.
+     * @param buffer the buffer receiving the state
+     */
+    void write(ByteBuffer buffer) {
+        buffer.putDouble(score);
+        buffer.putInt(multiplier);
+        buffer.putInt(multiplierTimer);
+    }
+
+    /** Replaces the state of the score by a state written by
+     * {@link #write(ByteBuffer)}.
+     * @param buffer the buffer holding the state
+     */
+    void read(ByteBuffer buffer) {
+        score = buffer.getDouble();
+        multiplier = buffer.getInt();
+        multiplierTimer = buffer.getInt();
+    }
+
     public void addMultiplier(int multiplier) {
         if (multiplier < 0)
             this.multiplier += Math.abs(multiplier);
@@ -0,0 +1,268 @@
+package game;
+
+import tools.Polygon;
+import tools.Vector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A table of polygonal shapes stored in flat arrays of coordinates. Each
+ * shape occupies one row of <em>stride</em> vertices, and is referred to
+ * by the index of its row. Rows of released shapes are reused by the next
+ * shapes added to the table.
+ * <p>
+ * Each row also has a buffer, with the same layout, where the owner of
+ * the shape can store the shape placed in world coordinates.
+ * <p>
+ * Each shape added also gets an identifier, never given to another shape,
+ * even in another table, so that a renderer can cache images of shapes.
+ */
+class ShapeTable {
+
+  /**
+   * Initial number of vertices per row, enough for the shapes built by
+   * the random generator. The stride grows if a larger shape is added.
+   */
+  private static final int INITIAL_STRIDE = 12;
+
+  private static final AtomicLong nextId = new AtomicLong();
+
+  private int stride = INITIAL_STRIDE;
+  private double[] xs;
+  private double[] ys;
+  private double[] worldXs;
+  private double[] worldYs;
+  private int[] vertexCounts;
+  private long[] ids;
+
+  /**
+   * For each row, the largest distance from (0,0) to a vertex of the shape.
+   */
+  private double[] radii;
+
+  /**
+   * Number of rows ever used, released or not.
+   */
+  private int rowCount;
+
+  private int[] freeRows;
+  private int freeRowCount;
+
+
+  /**
+   * @param capacity the number of rows initially allocated
+   */
+  ShapeTable(int capacity) {
+    capacity = Math.max(capacity, 1);
+    xs = new double[capacity * stride];
+    ys = new double[capacity * stride];
+    worldXs = new double[capacity * stride];
+    worldYs = new double[capacity * stride];
+    vertexCounts = new int[capacity];
+    ids = new long[capacity];
+    radii = new double[capacity];
+    freeRows = new int[capacity];
+  }
+
+
+  /** Stores a shape in the table.
+   * @param shape the shape to store, centered on (0,0)
+   * @return the index of the row holding the shape
+   */
+  int add(Polygon shape) {
+    List<Vector> vertices = shape.getVertices();
+    int row = allocate(vertices.size());
+    int offset = row * stride;
+    for (Vector vertex : vertices) {
+      xs[offset] = vertex.getX();
+      ys[offset] = vertex.getY();
+      offset++;
+    }
+    computeRadius(row);
+    return row;
+  }
+
+
+  /** Adds a shape given by the coordinates of its vertices.
+   * @param shapeXs the abscissas of the vertices
+   * @param shapeYs the ordinates of the vertices
+   * @param nbVertices the number of vertices
+   * @return the index of the row holding the shape
+   */
+  int add(double[] shapeXs, double[] shapeYs, int nbVertices) {
+    int row = allocate(nbVertices);
+    System.arraycopy(shapeXs, 0, xs, offset(row), nbVertices);
+    System.arraycopy(shapeYs, 0, ys, offset(row), nbVertices);
+    computeRadius(row);
+    return row;
+  }
+
+  /** Adds a shape whose radius is already known, as when a saved shape
+   * is restored. The vertices are stored anywhere in two arrays.
+   * @param shapeXs the array holding the abscissas of the vertices
+   * @param xOffset the index of the first abscissa
+   * @param shapeYs the array holding the ordinates of the vertices
+   * @param yOffset the index of the first ordinate
+   * @param nbVertices the number of vertices
+   * @param radius the radius of the shape, see {@link #radius(int)}
+   * @return the index of the row holding the shape
+   */
+  int add(double[] shapeXs, int xOffset, double[] shapeYs, int yOffset,
+          int nbVertices, double radius) {
+    int row = allocate(nbVertices);
+    System.arraycopy(shapeXs, xOffset, xs, offset(row), nbVertices);
+    System.arraycopy(shapeYs, yOffset, ys, offset(row), nbVertices);
+    radii[row] = radius;
+    return row;
+  }
+
+
+  /** Copies a shape from a table into this table.
+   * @param table the table holding the shape
+   * @param sourceRow the row of the shape in <em>table</em>
+   * @return the index of the row holding the copy
+   */
+  int copy(ShapeTable table, int sourceRow) {
+    int nbVertices = table.vertexCount(sourceRow);
+    int row = allocate(nbVertices);
+    System.arraycopy(table.xs, table.offset(sourceRow), xs, offset(row), nbVertices);
+    System.arraycopy(table.ys, table.offset(sourceRow), ys, offset(row), nbVertices);
+    radii[row] = table.radii[sourceRow];
+    return row;
+  }
+
+
+  /** Frees a row, so that it can hold another shape.
+   * @param row the row to free
+   */
+  void release(int row) {
+    vertexCounts[row] = 0;
+    freeRows[freeRowCount++] = row;
+  }
+
+
+  private int allocate(int nbVertices) {
+    if (nbVertices > stride) {
+      setStride(nbVertices);
+    }
+    int row;
+    if (freeRowCount > 0) {
+      row = freeRows[--freeRowCount];
+    } else {
+      if (rowCount == vertexCounts.length) {
+        grow(2 * rowCount);
+      }
+      row = rowCount++;
+    }
+    vertexCounts[row] = nbVertices;
+    ids[row] = nextId.getAndIncrement();
+    return row;
+  }
+
+
+  private void grow(int capacity) {
+    xs = Arrays.copyOf(xs, capacity * stride);
+    ys = Arrays.copyOf(ys, capacity * stride);
+    worldXs = Arrays.copyOf(worldXs, capacity * stride);
+    worldYs = Arrays.copyOf(worldYs, capacity * stride);
+    vertexCounts = Arrays.copyOf(vertexCounts, capacity);
+    ids = Arrays.copyOf(ids, capacity);
+    radii = Arrays.copyOf(radii, capacity);
+    freeRows = Arrays.copyOf(freeRows, capacity);
+  }
+
+
+  private void setStride(int newStride) {
+    xs = changeStride(xs, newStride);
+    ys = changeStride(ys, newStride);
+    worldXs = changeStride(worldXs, newStride);
+    worldYs = changeStride(worldYs, newStride);
+    stride = newStride;
+  }
+
+  private double[] changeStride(double[] coordinates, int newStride) {
+    double[] newCoordinates = new double[vertexCounts.length * newStride];
+    for (int row = 0; row < rowCount; row++) {
+      System.arraycopy(coordinates, row * stride,
+        newCoordinates, row * newStride, vertexCounts[row]);
+    }
+    return newCoordinates;
+  }
+
+
+  /**
+   * @param row a row of the table
+   * @return the number of vertices of the shape in this row
+   */
+  int vertexCount(int row) {
+    return vertexCounts[row];
+  }
+
+  /**
+   * @param row a row of the table
+   * @return the identifier of the shape in this row
+   */
+  long id(int row) {
+    return ids[row];
+  }
+
+  private void computeRadius(int row) {
+    double radius2 = 0;
+    int offset = offset(row);
+    for (int i = offset; i < offset + vertexCounts[row]; i++) {
+      radius2 = Math.max(radius2, xs[i] * xs[i] + ys[i] * ys[i]);
+    }
+    radii[row] = Math.sqrt(radius2);
+  }
+
+
+  /**
+   * @param row a row of the table
+   * @return the radius of the smallest disk centered on (0,0) containing the shape
+   */
+  double radius(int row) {
+    return radii[row];
+  }
+
+  /**
+   * @param row a row of the table
+   * @return the index in <em>getXs()</em> and <em>getYs()</em> of the first vertex of the row
+   */
+  int offset(int row) {
+    return row * stride;
+  }
+
+  /**
+   * @return the abscissas of all the vertices, row by row (not a copy)
+   */
+  double[] getXs() {
+    return xs;
+  }
+
+  /**
+   * @return the ordinates of all the vertices, row by row (not a copy)
+   */
+  double[] getYs() {
+    return ys;
+  }
+
+
+  /**
+   * @return the buffer for the abscissas of the shapes placed in world
+   * coordinates, with the same layout as <em>getXs()</em> (not a copy)
+   */
+  double[] getWorldXs() {
+    return worldXs;
+  }
+
+  /**
+   * @return the buffer for the ordinates of the shapes placed in world
+   * coordinates, with the same layout as <em>getYs()</em> (not a copy)
+   */
+  double[] getWorldYs() {
+    return worldYs;
+  }
+
+}
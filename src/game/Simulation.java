@@ -0,0 +1,343 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a space on a thread of its own, with a fixed time step. The time
+ * elapsed in real life is accumulated, and consumed by ticks of constant
+ * duration, so that the physics does not depend on the frame rate, and a
+ * slow frame does not produce a huge time step.
+ * <p>
+ * Other threads communicate with the simulation in two ways:
+ * <ul>
+ *   <li>they submit {@link Command commands}, applied at the start of the next tick;</li>
+ *   <li>they read {@link SpaceSnapshot snapshots}, published after the ticks.</li>
+ * </ul>
+ * Snapshots are quadruple-buffered: the simulation fills one buffer, the
+ * reader owns two of them, the latest snapshot it read and the one before,
+ * so that it can interpolate between them, and the fourth one is the latest
+ * published snapshot. Publishing and reading exchange buffers atomically,
+ * so neither side ever waits for the other.
+ */
+public class Simulation {
+
+  /**
+   * The default number of ticks per second.
+   */
+  public static final double DEFAULT_TICK_RATE = 120;
+
+  /**
+   * The maximal real time, in seconds, accounted for between two wake-ups
+   * of the simulation thread. Beyond it, the simulation slows down instead
+   * of trying to catch up with ever more ticks.
+   */
+  private static final double MAX_ELAPSED_TIME = 0.25;
+
+  private static final int FRESH = 4;
+  private static final int INDEX_MASK = 3;
+
+  private final Space space;
+  private final double tickDuration;
+  private final Queue<Command> commands = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Held during each tick, and by other threads needing a consistent view
+   * of the space.
+   */
+  private final Object lock = new Object();
+  private volatile boolean isRunning;
+  private volatile boolean isGameOver;
+  private long tickCount;
+  private Thread thread;
+  private InputRecorder recorder;
+  private RewindBuffer rewind;
+  /**
+   * The tick at which the game ended, or -1, so that rewinding before it
+   * resumes the game.
+   */
+  private long gameOverTick = -1;
+
+  private final SpaceSnapshot[] snapshots =
+    { new SpaceSnapshot(), new SpaceSnapshot(), new SpaceSnapshot(), new SpaceSnapshot() };
+  private int backIndex = 0;
+  private int frontIndex = 1;
+  private int previousIndex = 2;
+  /**
+   * The index of the latest published snapshot, with the bit FRESH set
+   * if it was not read yet.
+   */
+  private final AtomicInteger sharedIndex = new AtomicInteger(3);
+
+
+  /**
+   * @param space the space to simulate
+   * @param tickRate the number of ticks per second
+   */
+  public Simulation(Space space, double tickRate) {
+    if (!(tickRate > 0)) {
+      throw new IllegalArgumentException("tick rate must be positive: " + tickRate);
+    }
+    this.space = space;
+    this.tickDuration = 1 / tickRate;
+    synchronized (lock) {
+      snapshots[frontIndex].capture(space, tickCount, isGameOver);
+      snapshots[previousIndex].capture(space, tickCount, isGameOver);
+      publish();
+    }
+  }
+
+
+  public Space getSpace() {
+    return space;
+  }
+
+  /**
+   * @return the duration of a tick, in seconds
+   */
+  public double getTickDuration() {
+    return tickDuration;
+  }
+
+  public boolean isRunning() {
+    return isRunning;
+  }
+
+  public boolean isGameOver() {
+    return isGameOver;
+  }
+
+
+  /** Queues a command, applied at the start of the next tick.
+   * @param command the command to apply
+   */
+  public void submit(Command command) {
+    commands.add(command);
+  }
+
+
+  /**
+   * Starts or resumes the simulation thread, unless the game is over.
+   */
+  public void start() {
+    synchronized (lock) {
+      if (isGameOver || isRunning) {
+        return;
+      }
+      isRunning = true;
+      if (thread == null) {
+        thread = new Thread(this::run, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+      }
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Pauses the simulation thread, at the end of the current tick.
+   */
+  public void pause() {
+    isRunning = false;
+  }
+
+  /** Advances the simulation by one tick of a given duration, in the
+   * calling thread. Used to step through a paused game.
+   * @param dt the duration of the tick, in seconds
+   */
+  public void step(double dt) {
+    synchronized (lock) {
+      tick(dt);
+      publish();
+    }
+  }
+
+  /**
+   * Starts recording the commands applied from the next tick on, so that
+   * the session can be replayed, see {@link InputRecording}.
+   */
+  public void startRecording() {
+    synchronized (lock) {
+      recorder = new InputRecorder(space, tickCount);
+    }
+  }
+
+  /** Saves the commands recorded so far, with the hash of the current state.
+   * The recording goes on.
+   * @param path the file receiving the recording
+   * @throws IOException if the file cannot be written
+   * @throws IllegalStateException if the simulation is not recording
+   */
+  public void saveRecording(Path path) throws IOException {
+    synchronized (lock) {
+      if (recorder == null) {
+        throw new IllegalStateException("not recording");
+      }
+      recorder.save(path, space, tickCount);
+    }
+  }
+
+  /** Keeps the states of the following ticks, so that the game can be
+   * stepped backward, within a memory budget.
+   * @param budget the number of bytes available to keep the states
+   */
+  public void enableRewind(int budget) {
+    synchronized (lock) {
+      rewind = new RewindBuffer(budget);
+      rewind.capture(space, tickCount);
+    }
+  }
+
+  /**
+   * @return the oldest tick the paused simulation can be rewound to, or -1
+   */
+  public long getRewindStart() {
+    synchronized (lock) {
+      return rewind == null ? -1 : rewind.getOldestTick();
+    }
+  }
+
+  /**
+   * @return the newest tick the paused simulation can be moved forward to, or -1
+   */
+  public long getRewindEnd() {
+    synchronized (lock) {
+      return rewind == null ? -1 : rewind.getNewestTick();
+    }
+  }
+
+  /** Moves the paused simulation to a kept tick, backward or forward. The
+   * ticks following it are kept until the simulation runs again. A recording
+   * in progress restarts from this tick.
+   * @param tick a tick between {@link #getRewindStart()} and {@link #getRewindEnd()}
+   * @throws IllegalStateException if the simulation is running, or does not keep its states
+   */
+  public void rewindTo(long tick) {
+    synchronized (lock) {
+      if (isRunning || rewind == null) {
+        throw new IllegalStateException("rewinding needs a paused simulation keeping its states");
+      }
+      rewind.restore(space, tick);
+      tickCount = tick;
+      isGameOver = gameOverTick >= 0 && tick >= gameOverTick;
+      if (recorder != null) {
+        recorder = new InputRecorder(space, tickCount);
+      }
+      publish();
+    }
+  }
+
+  /**
+   * Moves the paused simulation one tick backward, if this tick is kept.
+   */
+  public void stepBack() {
+    synchronized (lock) {
+      if (rewind != null && tickCount > rewind.getOldestTick()) {
+        rewindTo(tickCount - 1);
+      }
+    }
+  }
+
+  /** Runs an action while no tick is in progress, so that the action sees
+   * a consistent state of the space. The action should be short, as it
+   * delays the simulation.
+   * @param action an action reading the space
+   */
+  public void runLocked(Runnable action) {
+    synchronized (lock) {
+      action.run();
+    }
+  }
+
+
+  /**
+   * @return the latest published snapshot, to be used by a single reading
+   * thread, and valid until its next call to this method
+   */
+  public SpaceSnapshot getSnapshot() {
+    if ((sharedIndex.get() & FRESH) != 0) {
+      int latestIndex = sharedIndex.getAndSet(previousIndex) & INDEX_MASK;
+      previousIndex = frontIndex;
+      frontIndex = latestIndex;
+    }
+    return snapshots[frontIndex];
+  }
+
+  /**
+   * @return the snapshot read before the latest one by {@link #getSnapshot()},
+   * to be used by the same thread, and valid until its next call to
+   * {@link #getSnapshot()}
+   */
+  public SpaceSnapshot getPreviousSnapshot() {
+    return snapshots[previousIndex];
+  }
+
+  private void publish() {
+    snapshots[backIndex].capture(space, tickCount, isGameOver);
+    backIndex = sharedIndex.getAndSet(backIndex | FRESH) & INDEX_MASK;
+  }
+
+
+  private void tick(double dt) {
+    if (recorder != null) {
+      recorder.tick(tickCount, dt);
+    }
+    Command command;
+    while ((command = commands.poll()) != null) {
+      if (recorder != null) {
+        recorder.record(tickCount, command);
+      }
+      command.applyTo(space);
+    }
+    boolean hasEnded = space.tick(dt);
+    tickCount++;
+    if (hasEnded) {
+      isGameOver = true;
+      isRunning = false;
+      gameOverTick = tickCount;
+    } else if (tickCount <= gameOverTick) {
+      gameOverTick = -1;
+    }
+    if (rewind != null) {
+      rewind.capture(space, tickCount);
+    }
+  }
+
+  private void run() {
+    long lastTime = System.nanoTime();
+    double accumulator = 0;
+    while (true) {
+      synchronized (lock) {
+        if (!isRunning) {
+          while (!isRunning) {
+            try {
+              lock.wait();
+            } catch (InterruptedException e) {
+              return;
+            }
+          }
+          lastTime = System.nanoTime();
+          accumulator = 0;
+        }
+        long now = System.nanoTime();
+        accumulator += Math.min((now - lastTime) * 1e-9, MAX_ELAPSED_TIME);
+        lastTime = now;
+        boolean hasTicked = false;
+        while (accumulator >= tickDuration && isRunning) {
+          tick(tickDuration);
+          accumulator -= tickDuration;
+          hasTicked = true;
+        }
+        if (hasTicked) {
+          publish();
+        }
+      }
+      LockSupport.parkNanos((long) ((tickDuration - accumulator) * 1e9));
+    }
+  }
+
+}
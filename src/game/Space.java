@@ -3,10 +3,10 @@ package game;
 
 import tools.Vector;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A Space contains all the information determining the current state of
@@ -15,6 +15,9 @@ import java.util.Set;
  */
 public class Space {
 
+  /**
+   * The size of a space built without an explicit size.
+   */
   public static final double SPACE_WIDTH = 800;
   public static final double SPACE_HEIGHT = 800;
 
@@ -31,66 +34,338 @@ public class Space {
   private static final double STARTING_SECURITY_DISTANCE = 80;
 
   /**
-   * An object able to create random items, like asteroids or positions.
+   * The size of this toric space, in pixels.
+   */
+  private final double width;
+  private final double height;
+
+  /**
+   * The seed from which all the random items of this space are drawn.
    */
-  public static final RandomGenerator generator = new RandomGenerator();
+  private long seed;
+
+  /**
+   * Objects able to create random items, like asteroids or positions: one
+   * stream for the asteroids spawned, one for the fragments, and one for
+   * the shapes of both, all split from the seed of the space. As shapes
+   * draw a random number of values, keeping them apart leaves the
+   * positions and velocities of the asteroids independent of the shapes.
+   */
+  private final RandomGenerator spawnGenerator;
+  private final RandomGenerator fragmentGenerator;
+  private final RandomGenerator shapeGenerator;
 
   private final Spaceship spaceship;
-  private final List<Asteroid> asteroids;
+  private final AsteroidField asteroids;
 
-  private final ArrayList<Projectile> projectiles;
+  private final ProjectilePool projectiles;
   private final Score score;
 
+  /**
+   * The pool running the parallel parts of a tick, or null if the whole
+   * tick runs on the calling thread.
+   */
+  private ForkJoinPool pool;
+
+  /**
+   * Times the phases of a tick, or null if they are not timed.
+   */
+  private PhaseProfiler profiler;
+
+  /**
+   * Indexes the asteroids by position, to find quickly which asteroids
+   * a projectile may hit.
+   */
+  private final SpatialHash asteroidGrid;
+
+  /**
+   * The hits found by the collision phase, one buffer per chunk of
+   * projectiles, and the loop body scanning a chunk, built once.
+   */
+  private HitBuffer[] hitBuffers = { new HitBuffer() };
+  private final ParallelRange.Body scanProjectiles = this::scanProjectiles;
+
+  /**
+   * Slots of the asteroids hit in the current tick, in the order they are
+   * found, and flags telling for each slot whether it is already listed.
+   */
+  private int[] hitSlots = new int[INITIAL_ASTEROID_COUNT];
+  private int hitCount;
+  private boolean[] isHitSlot = new boolean[INITIAL_ASTEROID_COUNT];
+
+  /**
+   * The buffer receiving the snapshots hashed by {@link SpaceCodec#hash(Space)}.
+   */
+  private ByteBuffer hashBuffer = ByteBuffer.allocate(0);
+
 
   public Space() {
+    this(INITIAL_ASTEROID_COUNT, new RandomGenerator().nextLong());
+  }
+
+  /**
+   * Builds a space whose evolution only depends on a seed, and on the
+   * commands given to the spaceship.
+   *
+   * @param asteroidCount the number of initial asteroids
+   * @param seed the seed of all the random items of the space
+   */
+  public Space(int asteroidCount, long seed) {
+    this(asteroidCount, seed, SPACE_WIDTH, SPACE_HEIGHT);
+  }
+
+  /**
+   * Builds a space of a given size, whose evolution only depends on a
+   * seed, and on the commands given to the spaceship.
+   *
+   * @param asteroidCount the number of initial asteroids
+   * @param seed the seed of all the random items of the space
+   * @param width the width of the space, in pixels
+   * @param height the height of the space, in pixels
+   * @throws IllegalArgumentException if a dimension is not a positive finite number
+   */
+  public Space(int asteroidCount, long seed, double width, double height) {
+    if (!isValidLength(width) || !isValidLength(height)) {
+      throw new IllegalArgumentException("invalid size of space: " + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+    this.seed = seed;
+    RandomGenerator generator = new RandomGenerator(seed);
+    spawnGenerator = generator.split();
+    fragmentGenerator = generator.split();
+    shapeGenerator = generator.split();
     score =new Score();
-    spaceship = new Spaceship();
-    asteroids = new ArrayList<>(INITIAL_ASTEROID_COUNT);
-    for (int i = 0; i < INITIAL_ASTEROID_COUNT; i++) {
-      asteroids.add(generateInitialAsteroid());
+    spaceship = new Spaceship(width, height);
+    asteroids = new AsteroidField(asteroidCount, width, height);
+    spawnGenerator.asteroids(asteroids, asteroidCount, INITIAL_ASTEROID_SIZE,
+      spaceship.getPosition(), STARTING_SECURITY_DISTANCE, shapeGenerator);
+    projectiles = new ProjectilePool(ProjectilePool.DEFAULT_CAPACITY, width, height);
+    asteroidGrid = new SpatialHash(width, height);
+  }
+
+  private static boolean isValidLength(double length) {
+    return length > 0 && length < Double.POSITIVE_INFINITY;
+  }
+
+  /** Starts a new game in this space, reusing its buffers: the space then
+   * evolves exactly as a new space built with the same parameters would.
+   * The pool and the profiler are kept. Asteroids and projectiles obtained
+   * before must not be used anymore.
+   *
+   * @param asteroidCount the number of initial asteroids
+   * @param seed the seed of all the random items of the space
+   */
+  public void reset(int asteroidCount, long seed) {
+    this.seed = seed;
+    shapeGenerator.reseed(seed);
+    shapeGenerator.split(spawnGenerator);
+    shapeGenerator.split(fragmentGenerator);
+    shapeGenerator.split(shapeGenerator);
+    score.reset();
+    spaceship.reset();
+    asteroids.clear();
+    spawnGenerator.asteroids(asteroids, asteroidCount, INITIAL_ASTEROID_SIZE,
+      spaceship.getPosition(), STARTING_SECURITY_DISTANCE, shapeGenerator);
+    projectiles.clear();
+  }
+
+  /** Chooses whether the asteroids and the projectiles are updated in
+   * parallel. Parallel updates give exactly the same results as sequential
+   * ones; they only pay off in worlds with thousands of items, and smaller
+   * loops stay sequential anyway.
+   *
+   * @param pool the pool running the parallel parts of a tick, for instance
+   *             {@link ForkJoinPool#commonPool()}, or null to run ticks sequentially
+   */
+  public void setParallelism(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * @return the pool running the parallel parts of a tick, or null
+   */
+  public ForkJoinPool getParallelism() {
+    return pool;
+  }
+
+  /** Chooses whether the update of the space, and its projectile collision
+   * phase, are timed.
+   *
+   * @param profiler the profiler recording the durations, or null
+   */
+  public void setProfiler(PhaseProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  /**
+   * @return the profiler recording the durations of the ticks, or null
+   */
+  public PhaseProfiler getProfiler() {
+    return profiler;
+  }
+
+  /** Saves the whole state of the space into a new buffer, see
+   * {@link SpaceCodec} for the format.
+   * @return a buffer holding the snapshot, from position 0 to its limit
+   */
+  public ByteBuffer snapshot() {
+    ByteBuffer buffer = ByteBuffer.allocate(SpaceCodec.size(this));
+    snapshot(buffer);
+    return buffer.flip();
+  }
+
+  /** Saves the whole state of the space at the position of a buffer, see
+   * {@link SpaceCodec} for the format.
+   * @param buffer a buffer with at least {@link SpaceCodec#size(Space)} bytes remaining
+   */
+  public void snapshot(ByteBuffer buffer) {
+    SpaceCodec.write(this, buffer);
+  }
+
+  /** Replaces the whole state of the space by a snapshot. The space then
+   * evolves exactly as the saved space would have. Asteroids and projectiles
+   * obtained before must not be used anymore.
+   * @param buffer a buffer holding a snapshot at its position
+   */
+  public void restore(ByteBuffer buffer) {
+    SpaceCodec.read(buffer, this);
+  }
+
+  /**
+   * @param size the number of bytes needed
+   * @return an empty buffer of at least this size, reused from call to call
+   */
+  ByteBuffer getHashBuffer(int size) {
+    if (hashBuffer.capacity() < size) {
+      hashBuffer = ByteBuffer.allocate(Math.max(size, 2 * hashBuffer.capacity()));
     }
-    projectiles= new ArrayList<>();
+    return hashBuffer.clear();
+  }
+
+  /**
+   * @return the number of bytes written by {@link #write(ByteBuffer)}
+   */
+  int getEncodedSize() {
+    return Long.BYTES + 3 * RandomGenerator.ENCODED_SIZE
+      + Score.ENCODED_SIZE + Spaceship.ENCODED_SIZE
+      + asteroids.getEncodedSize() + projectiles.getEncodedSize();
+  }
+
+  /** Writes the state of the space, without the header of the format.
+   * The collision buffers are not saved: they are empty between two ticks.
+   * @param buffer the buffer receiving the state
+   */
+  void write(ByteBuffer buffer) {
+    buffer.putLong(seed);
+    spawnGenerator.write(buffer);
+    fragmentGenerator.write(buffer);
+    shapeGenerator.write(buffer);
+    score.write(buffer);
+    spaceship.write(buffer);
+    asteroids.write(buffer);
+    projectiles.write(buffer);
+  }
+
+  /** Replaces the state of the space by a state written by {@link #write(ByteBuffer)}.
+   * @param buffer the buffer holding the state
+   */
+  void read(ByteBuffer buffer) {
+    seed = buffer.getLong();
+    spawnGenerator.read(buffer);
+    fragmentGenerator.read(buffer);
+    shapeGenerator.read(buffer);
+    score.read(buffer);
+    spaceship.read(buffer);
+    asteroids.read(buffer);
+    projectiles.read(buffer);
+  }
+
+  /**
+   * @return the width of this space, in pixels
+   */
+  public double getWidth() {
+    return width;
+  }
+
+  /**
+   * @return the height of this space, in pixels
+   */
+  public double getHeight() {
+    return height;
+  }
+
+  /**
+   * @return the seed from which the random items of this space are drawn
+   */
+  public long getSeed() {
+    return seed;
   }
 
   public Spaceship getSpaceship() {
     return spaceship;
   }
 
+  /**
+   * @return a view of the asteroids, in no particular order
+   */
   public List<Asteroid> getAsteroids() {
+    return asteroids.asList();
+  }
+
+  AsteroidField getAsteroidField() {
     return asteroids;
   }
 
+  ProjectilePool getProjectilePool() {
+    return projectiles;
+  }
+
   public Score getScore() {
     return score;
   }
 
-  public ArrayList<Projectile> getProjectiles() {
-    return projectiles;
+  /**
+   * @return a view of the projectiles, from the oldest to the newest
+   */
+  public List<Projectile> getProjectiles() {
+    return projectiles.asList();
   }
 
-  private List<Projectile> getDeadProjectiles() {
-    List<Projectile>  deadProjectiles = new ArrayList<>();
-    for (Projectile projectile: projectiles) {
-      if (projectile.isAlive(0))
-        deadProjectiles.add(projectile);
-    }
-    return deadProjectiles;
+  /**
+   * @return the grid used in the last collision phase, with its counters
+   */
+  public SpatialHash getAsteroidGrid() {
+    return asteroidGrid;
+  }
+
+  /** Simulates one tick of the game: updates the space, then checks
+   * whether an asteroid hits the spaceship, which costs a life. Every
+   * loop running the game, live or replayed, ticks through this method,
+   * so that they all evolve the same way.
+   *
+   * @param dt the duration of the tick, in seconds
+   * @return whether the game is over
+   */
+  public boolean tick(double dt) {
+    update(dt);
+    return isGameOver();
   }
 
   public void update(double dt) {
+    long start = profiler == null ? 0 : profiler.start();
     score.update(dt);
-    for (Asteroid asteroid : asteroids) {
-      asteroid.update(dt);
-    }
+    asteroids.update(dt, pool);
     spaceship.update(dt);
     removeDeadProjectiles();
     processProjectiles(dt);
+    if (profiler != null) {
+      profiler.stop(PhaseProfiler.Phase.SPACE_UPDATE, start);
+    }
   }
 
   private  void updateProjectiles(double dt) {
-    for (Projectile projectile:projectiles) {
-      projectile.update(dt);
-    }
+    projectiles.update(dt, pool);
   }
   public boolean isGameOver() {
     return hasCollision() && hasLives();
@@ -98,36 +373,27 @@ public class Space {
 
 
   /**
-   * Generates a random asteroid with standard parameters, whose distance
-   * to the spaceship is large enough.
+   * Because the space is toric (things leaving the window on one side
+   * reappear on the other side), we need to compute the positions of items
+   * leaving the screen to get them back on the other side. This method maps
+   * an arbitrary coordinate to a valid toric coordinate.
    *
-   * @return a random asteroid
-   */
-  public Asteroid generateInitialAsteroid() {
-    Asteroid asteroid = generator.asteroid(INITIAL_ASTEROID_SIZE);
-    double distanceFromSpaceship =
-      asteroid.getPosition().distanceTo(spaceship.getPosition());
-    if (distanceFromSpaceship < STARTING_SECURITY_DISTANCE) {
-      return generateInitialAsteroid();
-    }
-    return asteroid;
+   * @param coordinate any coordinate
+   * @param length the length of the toric axis
+   * @return the same coordinate, between 0 and the length
+   */
+  static double toricRemap(double coordinate, double length) {
+    return clamp(coordinate, length);
   }
 
 
   /**
-   * Because the space is toric (things leaving the window on one side
-   * reappear on the other side), we need to compute the positions of items
-   * leaving the screen to get them back on the other side. This method takes
-   * an arbitrary vector and maps it to valid toric coordinates.
-   *
-   * @param position any position
-   * @return the same position with canonical toric coordinates
+   * @param delta a difference of coordinates
+   * @param length the length of the toric axis
+   * @return the difference to the closest image, between -length/2 and length/2
    */
-  public static Vector toricRemap(Vector position) {
-    return new Vector(
-      clamp(position.getX(), SPACE_WIDTH),
-      clamp(position.getY(), SPACE_HEIGHT)
-    );
+  static double closestImage(double delta, double length) {
+    return delta - Math.floor(delta / length + 0.5) * length;
   }
 
 
@@ -143,7 +409,7 @@ public class Space {
   }
 
   public boolean hasCollision() {
-    for (Asteroid asteroid: asteroids) {
+    for (Asteroid asteroid: asteroids.asList()) {
       if(spaceship.collides(asteroid)) {
         this.getSpaceship().setInvulnerability(5);
         return true;
@@ -160,41 +426,117 @@ public class Space {
     projectiles.add(projectile);
   }
 
+  /** Fires a projectile straight into the pool of the space, without
+   * allocating it.
+   * @param x the abscissa of the starting position
+   * @param y the ordinate of the starting position
+   * @param vx the abscissa of the velocity
+   * @param vy the ordinate of the velocity
+   */
+  public void addProjectile(double x, double y, double vx, double vy) {
+    projectiles.spawn(x, y, vx, vy);
+  }
+
+  /**
+   * Fires the gun of the spaceship, the projectile going directly into
+   * the pool of projectiles.
+   */
+  public void fire() {
+    spaceship.fire(projectiles);
+  }
+
   private void removeDeadProjectiles() {
-      projectiles.removeAll(getDeadProjectiles());
+    projectiles.removeDead();
   }
 
-  private void fragment(Set<Asteroid> hittedAsteroids) {
-    for (Asteroid asteroid : hittedAsteroids) {
-      asteroids.addAll(asteroid.fragments());
-      getScore().notifyAsteroidHit();
+  /**
+   * Fragments the asteroids hit in the current tick. Slots are removed
+   * from the largest to the smallest, so that moving the last asteroid
+   * into a removed slot never moves an asteroid still to be removed.
+   */
+  private void fragment() {
+    for (int i = 0; i < hitCount; i++) {
+      int slot = hitSlots[i];
+      double size = asteroids.getSize(slot);
+      if (size > MINIMAL_ASTEROID_SIZE) {
+        fragmentGenerator.asteroids(asteroids, (int) NUMBER_ASTEROID_FRAGMENTS,
+          asteroids.getX(slot), asteroids.getY(slot),
+          size * INITIAL_AND_FRAGMENT_RATIO, shapeGenerator);
+      }
     }
-    asteroids.removeAll(hittedAsteroids);
-
+    getScore().notifyAsteroidHits(hitCount);
+    Arrays.sort(hitSlots, 0, hitCount);
+    for (int i = hitCount - 1; i >= 0; i--) {
+      isHitSlot[hitSlots[i]] = false;
+      asteroids.remove(hitSlots[i]);
+    }
+    hitCount = 0;
   }
 
-  private void remove(Set<Projectile> hittingProjectiles) {
-    projectiles.removeAll(hittingProjectiles);
+  private void recordHit(int slot) {
+    if (!isHitSlot[slot]) {
+      isHitSlot[slot] = true;
+      hitSlots[hitCount++] = slot;
+    }
   }
 
-  private void findProjectileHits(Set<Projectile> hittingProjectiles, Set<Asteroid> hittedAsteroids) {
-    for (Projectile projectile :projectiles) {
-      for (Asteroid asteroid : asteroids) {
-        if (projectile.collides(asteroid)) {
-          hittingProjectiles.add(projectile);
-          hittedAsteroids.add(asteroid);
-        }
+  /**
+   * Finds the projectiles hitting an asteroid. With a pool, the projectiles
+   * are cut into chunks scanned in parallel, each into its own buffer. The
+   * buffers are then merged in chunk order, so the hits are listed in the
+   * same order as in a sequential scan, and the fragments drawn next are
+   * the same.
+   */
+  private void findProjectileHits() {
+    asteroidGrid.rebuild(asteroids);
+    if (hitSlots.length < asteroids.size()) {
+      hitSlots = new int[2 * asteroids.size()];
+      isHitSlot = new boolean[hitSlots.length];
+    }
+    int nbProjectiles = projectiles.size();
+    int nbChunks = ParallelRange.chunkCount(pool, nbProjectiles);
+    if (hitBuffers.length < nbChunks) {
+      int oldLength = hitBuffers.length;
+      hitBuffers = Arrays.copyOf(hitBuffers, nbChunks);
+      for (int chunk = oldLength; chunk < nbChunks; chunk++) {
+        hitBuffers[chunk] = new HitBuffer();
+      }
+    }
+    if (nbChunks > 1) {
+      asteroids.placeShapes(pool);
+    }
+    ParallelRange.forEach(pool, nbProjectiles, scanProjectiles);
+
+    long candidatePairs = 0;
+    long exactTests = 0;
+    long hits = 0;
+    for (int chunk = 0; chunk < nbChunks; chunk++) {
+      HitBuffer buffer = hitBuffers[chunk];
+      for (int hit = 0; hit < buffer.size(); hit++) {
+        projectiles.markHit(buffer.getProjectileIndex(hit));
+        recordHit(buffer.getAsteroidSlot(hit));
       }
+      candidatePairs += buffer.getCandidatePairCount();
+      exactTests += buffer.getExactTestCount();
+      hits += buffer.size();
     }
+    asteroidGrid.addCounts(candidatePairs, exactTests, hits);
+  }
+
+  private void scanProjectiles(int from, int to) {
+    hitBuffers[from / ParallelRange.THRESHOLD]
+      .scan(projectiles, from, to, asteroids, asteroidGrid);
   }
 
   public void processProjectiles(double dt) {
     updateProjectiles(dt);
-    Set<Projectile> hittingProjectiles = new HashSet<>();
-    Set<Asteroid> hittedAsteroids = new HashSet<>();
-    findProjectileHits(hittingProjectiles, hittedAsteroids);
-    remove(hittingProjectiles);
-    fragment(hittedAsteroids);
+    long start = profiler == null ? 0 : profiler.start();
+    findProjectileHits();
+    if (profiler != null) {
+      profiler.stop(PhaseProfiler.Phase.PROJECTILE_COLLISION, start);
+    }
+    projectiles.removeHits();
+    fragment();
   }
 
 
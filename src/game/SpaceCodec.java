@@ -0,0 +1,199 @@
+package game;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes the whole state of a space into a compact binary format, and
+ * reads it back. A snapshot starts with a magic number, a version and
+ * the size of the space, which must be the size of the space reading it
+ * back, followed by:
+ * <ul>
+ *   <li>the seed of the space and the states of its random generators, with
+ *   their gammas;</li>
+ *   <li>the score, with its multiplier and timer;</li>
+ *   <li>the spaceship: position, velocity, heading, fuel, invulnerability,
+ *   lives and engines;</li>
+ *   <li>the asteroids, in slot order: their count and the duration of the
+ *   last step, then one array per attribute (position, velocity,
+ *   orientation, angular velocity, rotation in one step, size, radius of
+ *   the shape), the vertex counts of their shapes, and the vertices of each
+ *   shape;</li>
+ *   <li>the projectiles, from the oldest to the newest: their count, then
+ *   one array per attribute (position, velocity, remaining life).</li>
+ * </ul>
+ * Numbers are little-endian, and stored exactly: a restored space evolves
+ * exactly as the original one would have. Attributes are stored as arrays
+ * so that they are copied in bulk, and restoring reuses the memory of the
+ * target space, so large worlds are saved and loaded without much
+ * allocation. Snapshots can be written into and read from memory-mapped
+ * files, see {@link #save(Space, Path)} and {@link #load(Path, Space)}.
+ */
+public final class SpaceCodec {
+
+  /**
+   * The first four bytes of a snapshot, "ASTR" in ASCII.
+   */
+  public static final int MAGIC = 0x41535452;
+
+  /**
+   * The version of the format written by this class.
+   */
+  public static final int VERSION = 4;
+
+  private static final int HEADER_SIZE = 2 * Integer.BYTES + 2 * Double.BYTES;
+
+
+  private SpaceCodec() {
+  }
+
+
+  /**
+   * @param space a space
+   * @return the number of bytes of the snapshot of this space
+   */
+  public static int size(Space space) {
+    return HEADER_SIZE + space.getEncodedSize();
+  }
+
+  /** Writes a snapshot of a space at the position of a buffer, and moves
+   * the position after it. The buffer is switched to little-endian order.
+   * @param space the space to save
+   * @param buffer the buffer, with at least {@link #size(Space)} bytes remaining
+   */
+  public static void write(Space space, ByteBuffer buffer) {
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putDouble(space.getWidth());
+    buffer.putDouble(space.getHeight());
+    space.write(buffer);
+  }
+
+  /** Reads a snapshot at the position of a buffer into a space, replacing
+   * its whole state, and moves the position after the snapshot. The buffer
+   * is switched to little-endian order.
+   * @param buffer the buffer holding the snapshot
+   * @param space the space receiving the state
+   * @throws IllegalArgumentException if the buffer does not hold a valid
+   * snapshot of a supported version, or of a space of the same size. The
+   * space may then be left partly restored.
+   */
+  public static void read(ByteBuffer buffer, Space space) {
+    try {
+      readSnapshot(buffer, space);
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("truncated snapshot", e);
+    } catch (IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("corrupt snapshot", e);
+    }
+  }
+
+  private static void readSnapshot(ByteBuffer buffer, Space space) {
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.getInt() != MAGIC) {
+      throw new IllegalArgumentException("not a space snapshot");
+    }
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("unsupported snapshot version " + version);
+    }
+    double width = buffer.getDouble();
+    double height = buffer.getDouble();
+    if (width != space.getWidth() || height != space.getHeight()) {
+      throw new IllegalArgumentException("snapshot of a " + width + "x" + height
+        + " space, read into a " + space.getWidth() + "x" + space.getHeight() + " space");
+    }
+    space.read(buffer);
+  }
+
+  /** Builds a space of the size saved in a snapshot, ready to restore it.
+   * @param buffer a buffer holding a snapshot at its position, left unchanged
+   * @param seed the seed of the new space
+   * @return a space without asteroids, of the size of the snapshot
+   * @throws IllegalArgumentException if the header is truncated, or the saved size is not valid
+   */
+  static Space emptySpace(ByteBuffer buffer, long seed) {
+    ByteBuffer header = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    if (header.remaining() < HEADER_SIZE) {
+      throw new IllegalArgumentException("truncated snapshot");
+    }
+    int sizeOffset = header.position() + 2 * Integer.BYTES;
+    return new Space(0, seed,
+      header.getDouble(sizeOffset), header.getDouble(sizeOffset + Double.BYTES));
+  }
+
+
+  /** Hashes the whole state of a space, to check cheaply that two spaces
+   * are in the same state. The snapshot is written into a buffer kept by
+   * the space, so hashing the same space again does not allocate it.
+   * @param space a space
+   * @return the CRC-32C checksum of the snapshot of the space
+   */
+  public static long hash(Space space) {
+    ByteBuffer buffer = space.getHashBuffer(size(space));
+    write(space, buffer);
+    CRC32C checksum = new CRC32C();
+    checksum.update(buffer.flip());
+    return checksum.getValue();
+  }
+
+
+  /** Saves a snapshot of a space into a file, through a memory mapping.
+   * @param space the space to save
+   * @param path the file, created or replaced
+   * @throws IOException if the file cannot be written
+   */
+  public static void save(Space space, Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+      StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size(space));
+      write(space, buffer);
+    }
+  }
+
+  /** Loads a snapshot from a file into a space, through a memory mapping.
+   * @param path the file holding the snapshot
+   * @param space the space receiving the state
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the file does not hold a valid snapshot,
+   * see {@link #read(ByteBuffer, Space)}
+   */
+  public static void load(Path path, Space space) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), space);
+    }
+  }
+
+
+  /** Copies values of an array at the position of a buffer, as one bulk
+   * copy, and moves the position after them.
+   */
+  static void putDoubles(ByteBuffer buffer, double[] values, int offset, int count) {
+    buffer.asDoubleBuffer().put(values, offset, count);
+    skipDoubles(buffer, count);
+  }
+
+  /** Copies values from the position of a buffer into an array, as one
+   * bulk copy, and moves the position after them.
+   */
+  static void getDoubles(ByteBuffer buffer, double[] values, int offset, int count) {
+    buffer.asDoubleBuffer().get(values, offset, count);
+    skipDoubles(buffer, count);
+  }
+
+  /** Moves the position of a buffer after doubles written or read
+   * through a view of the buffer.
+   */
+  static void skipDoubles(ByteBuffer buffer, int count) {
+    buffer.position(buffer.position() + count * Double.BYTES);
+  }
+
+}
@@ -0,0 +1,357 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * A copy of everything needed to draw a space at a given instant. The
+ * simulation thread fills snapshots, and once published a snapshot is
+ * only read, by the rendering thread, until it is handed back to the
+ * simulation. Snapshots are reused from one tick to the next: their
+ * arrays only grow, so that capturing a space allocates nothing once
+ * the game has settled.
+ * <p>
+ * Along with the positions, a snapshot records the velocities, so that
+ * a renderer can move the asteroids and the projectiles, which fly in
+ * straight lines, to any instant between two snapshots.
+ * The center, bounding radius, orientation and shape identifier of each
+ * asteroid are also recorded, for renderers culling asteroids or drawing
+ * them from cached images.
+ */
+public class SpaceSnapshot {
+
+  private long tick;
+  private long captureTime;
+  private boolean isGameOver;
+  private double width;
+  private double height;
+
+  private int asteroidCount;
+  private int[] vertexOffsets = new int[1];
+  private double[] vertexXs = new double[0];
+  private double[] vertexYs = new double[0];
+  private double[] asteroidVelocityXs = new double[0];
+  private double[] asteroidVelocityYs = new double[0];
+  private double[] asteroidXs = new double[0];
+  private double[] asteroidYs = new double[0];
+  private double[] asteroidRadii = new double[0];
+  private double[] asteroidCosines = new double[0];
+  private double[] asteroidSines = new double[0];
+  private long[] shapeIds = new long[0];
+
+  private int projectileCount;
+  private double[] projectileXs = new double[0];
+  private double[] projectileYs = new double[0];
+  private double[] projectileVelocityXs = new double[0];
+  private double[] projectileVelocityYs = new double[0];
+
+  private double spaceshipX;
+  private double spaceshipY;
+  private double spaceshipVelocityX;
+  private double spaceshipVelocityY;
+  private double spaceshipDirectionAngle;
+  private boolean isMainEngineOn;
+  private boolean isLeftEngineOn;
+  private boolean isRightEngineOn;
+  private boolean isMainEngineRecoil;
+  private boolean isSpaceshipInvulnerable;
+  private double spaceshipInvulnerabilityTime;
+  private double spaceshipFuelPercentage;
+  private double spaceshipLifeNumbers;
+
+  private double score;
+  private int scoreMultiplier;
+
+
+  /** Copies the state of a space into this snapshot.
+   * @param space the space to copy
+   * @param tick the number of ticks simulated so far
+   * @param isGameOver whether the game is over
+   */
+  void capture(Space space, long tick, boolean isGameOver) {
+    this.tick = tick;
+    this.isGameOver = isGameOver;
+    width = space.getWidth();
+    height = space.getHeight();
+    captureAsteroids(space.getAsteroidField());
+    captureProjectiles(space.getProjectilePool());
+    captureSpaceship(space.getSpaceship());
+    score = space.getScore().getScore();
+    scoreMultiplier = space.getScore().getMultiplier();
+    captureTime = System.nanoTime();
+  }
+
+  private void captureAsteroids(AsteroidField asteroids) {
+    asteroidCount = asteroids.size();
+    if (asteroidVelocityXs.length < asteroidCount) {
+      int capacity = 2 * asteroidCount;
+      vertexOffsets = Arrays.copyOf(vertexOffsets, capacity + 1);
+      asteroidVelocityXs = new double[capacity];
+      asteroidVelocityYs = new double[capacity];
+      asteroidXs = new double[capacity];
+      asteroidYs = new double[capacity];
+      asteroidRadii = new double[capacity];
+      asteroidCosines = new double[capacity];
+      asteroidSines = new double[capacity];
+      shapeIds = new long[capacity];
+    }
+    int nbVertices = 0;
+    for (int slot = 0; slot < asteroidCount; slot++) {
+      nbVertices += asteroids.getVertexCount(slot);
+    }
+    if (vertexXs.length < nbVertices) {
+      vertexXs = new double[2 * nbVertices];
+      vertexYs = new double[2 * nbVertices];
+    }
+    int offset = 0;
+    for (int slot = 0; slot < asteroidCount; slot++) {
+      vertexOffsets[slot] = offset;
+      offset += asteroids.getWorldVertices(slot, vertexXs, vertexYs, offset);
+      asteroidVelocityXs[slot] = asteroids.getVelocityX(slot);
+      asteroidVelocityYs[slot] = asteroids.getVelocityY(slot);
+      asteroidXs[slot] = asteroids.getX(slot);
+      asteroidYs[slot] = asteroids.getY(slot);
+      asteroidRadii[slot] = asteroids.getRadius(slot);
+      asteroidCosines[slot] = asteroids.getCosine(slot);
+      asteroidSines[slot] = asteroids.getSine(slot);
+      shapeIds[slot] = asteroids.getShapeId(slot);
+    }
+    vertexOffsets[asteroidCount] = offset;
+  }
+
+  private void captureProjectiles(ProjectilePool projectiles) {
+    projectileCount = projectiles.size();
+    if (projectileXs.length < projectileCount) {
+      int capacity = 2 * projectileCount;
+      projectileXs = new double[capacity];
+      projectileYs = new double[capacity];
+      projectileVelocityXs = new double[capacity];
+      projectileVelocityYs = new double[capacity];
+    }
+    for (int index = 0; index < projectileCount; index++) {
+      projectileXs[index] = projectiles.getX(index);
+      projectileYs[index] = projectiles.getY(index);
+      projectileVelocityXs[index] = projectiles.getVelocityX(index);
+      projectileVelocityYs[index] = projectiles.getVelocityY(index);
+    }
+  }
+
+  private void captureSpaceship(Spaceship spaceship) {
+    spaceshipX = spaceship.getX();
+    spaceshipY = spaceship.getY();
+    spaceshipVelocityX = spaceship.getVelocityX();
+    spaceshipVelocityY = spaceship.getVelocityY();
+    spaceshipDirectionAngle = spaceship.getDirectionAngle();
+    isMainEngineOn = spaceship.isMainEngineOn();
+    isLeftEngineOn = spaceship.isLeftEngineOn();
+    isRightEngineOn = spaceship.isRightEngineOn();
+    isMainEngineRecoil = spaceship.isMainEngineRecoil();
+    isSpaceshipInvulnerable = spaceship.isInvulnerable();
+    spaceshipInvulnerabilityTime = spaceship.getInvulnerabilityTime();
+    spaceshipFuelPercentage = spaceship.getFuelPercentage();
+    spaceshipLifeNumbers = spaceship.getLifeNumbers();
+  }
+
+
+  /**
+   * @return the number of ticks simulated before the capture
+   */
+  public long getTick() {
+    return tick;
+  }
+
+  /**
+   * @return the time of the capture, as given by {@link System#nanoTime()}
+   */
+  public long getCaptureTime() {
+    return captureTime;
+  }
+
+  public boolean isGameOver() {
+    return isGameOver;
+  }
+
+  /**
+   * @return the width of the captured space
+   */
+  public double getWidth() {
+    return width;
+  }
+
+  /**
+   * @return the height of the captured space
+   */
+  public double getHeight() {
+    return height;
+  }
+
+
+  public int getAsteroidCount() {
+    return asteroidCount;
+  }
+
+  /**
+   * @param index the index of an asteroid
+   * @return the index of its first vertex in {@link #getVertexXs()} and {@link #getVertexYs()}
+   */
+  public int getVertexOffset(int index) {
+    return vertexOffsets[index];
+  }
+
+  /**
+   * @param index the index of an asteroid
+   * @return its number of vertices
+   */
+  public int getVertexCount(int index) {
+    return vertexOffsets[index + 1] - vertexOffsets[index];
+  }
+
+  /**
+   * @return the abscissas of the vertices of all the asteroids, not to be modified
+   */
+  public double[] getVertexXs() {
+    return vertexXs;
+  }
+
+  /**
+   * @return the ordinates of the vertices of all the asteroids, not to be modified
+   */
+  public double[] getVertexYs() {
+    return vertexYs;
+  }
+
+  public double getAsteroidVelocityX(int index) {
+    return asteroidVelocityXs[index];
+  }
+
+  public double getAsteroidVelocityY(int index) {
+    return asteroidVelocityYs[index];
+  }
+
+  public double getAsteroidX(int index) {
+    return asteroidXs[index];
+  }
+
+  public double getAsteroidY(int index) {
+    return asteroidYs[index];
+  }
+
+  /**
+   * @param index the index of an asteroid
+   * @return the radius of the smallest disk with the same center containing it
+   */
+  public double getAsteroidRadius(int index) {
+    return asteroidRadii[index];
+  }
+
+  /**
+   * The vertices of an asteroid are placed in world coordinates by the
+   * rotation (x, y) -> (c x + s y, -s x + c y), where c is the cosine and
+   * s the sine of the asteroid, then by the translation to its center.
+   *
+   * @param index the index of an asteroid
+   * @return the cosine of its orientation
+   */
+  public double getAsteroidCosine(int index) {
+    return asteroidCosines[index];
+  }
+
+  /**
+   * @param index the index of an asteroid
+   * @return the sine of its orientation, see {@link #getAsteroidCosine(int)}
+   */
+  public double getAsteroidSine(int index) {
+    return asteroidSines[index];
+  }
+
+  /**
+   * @param index the index of an asteroid
+   * @return the identifier of its shape, never given to another shape
+   */
+  public long getShapeId(int index) {
+    return shapeIds[index];
+  }
+
+
+  public int getProjectileCount() {
+    return projectileCount;
+  }
+
+  public double getProjectileX(int index) {
+    return projectileXs[index];
+  }
+
+  public double getProjectileY(int index) {
+    return projectileYs[index];
+  }
+
+  public double getProjectileVelocityX(int index) {
+    return projectileVelocityXs[index];
+  }
+
+  public double getProjectileVelocityY(int index) {
+    return projectileVelocityYs[index];
+  }
+
+
+  public double getSpaceshipX() {
+    return spaceshipX;
+  }
+
+  public double getSpaceshipY() {
+    return spaceshipY;
+  }
+
+  public double getSpaceshipVelocityX() {
+    return spaceshipVelocityX;
+  }
+
+  public double getSpaceshipVelocityY() {
+    return spaceshipVelocityY;
+  }
+
+  public double getSpaceshipDirectionAngle() {
+    return spaceshipDirectionAngle;
+  }
+
+  public boolean isMainEngineOn() {
+    return isMainEngineOn;
+  }
+
+  public boolean isLeftEngineOn() {
+    return isLeftEngineOn;
+  }
+
+  public boolean isRightEngineOn() {
+    return isRightEngineOn;
+  }
+
+  public boolean isMainEngineRecoil() {
+    return isMainEngineRecoil;
+  }
+
+  public boolean isSpaceshipInvulnerable() {
+    return isSpaceshipInvulnerable;
+  }
+
+  public double getSpaceshipInvulnerabilityTime() {
+    return spaceshipInvulnerabilityTime;
+  }
+
+  public double getSpaceshipFuelPercentage() {
+    return spaceshipFuelPercentage;
+  }
+
+  public double getSpaceshipLifeNumbers() {
+    return spaceshipLifeNumbers;
+  }
+
+
+  public double getScore() {
+    return score;
+  }
+
+  public int getScoreMultiplier() {
+    return scoreMultiplier;
+  }
+
+}
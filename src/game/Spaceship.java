@@ -1,7 +1,10 @@
 package game;
 
+import tools.MutableVector;
+import tools.Rotation;
 import tools.Vector;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
@@ -19,6 +22,10 @@ public class Spaceship {
     private static final double MAIN_ENGINE_CONSUMPTION = 1;
     private static final double LATERALS_ENGINE_CONSUMPTION = 0.3;
     private static final double RECOIL_ENGINE_CONSUMPTION = 0.5;
+    /**
+     * The number of bytes written by {@link #write(ByteBuffer)}.
+     */
+    static final int ENCODED_SIZE = 9 * Double.BYTES + 1;
     /**
      * A list of points on the boundary of the spaceship, used
      * to detect collision with other objects.
@@ -38,19 +45,39 @@ public class Spaceship {
                     new Vector(2, -3),
                     new Vector(14.5, -1.5)
             );
+    private static final double[] contactPointXs =
+            contactPoints.stream().mapToDouble(Vector::getX).toArray();
+    private static final double[] contactPointYs =
+            contactPoints.stream().mapToDouble(Vector::getY).toArray();
+    /**
+     * Buffers receiving the contact points in the current position
+     * of the spaceship.
+     */
+    private final double[] contactXs = new double[contactPoints.size()];
+    private final double[] contactYs = new double[contactPoints.size()];
     /**
      * The position of the center of the spaceship
      */
-    private Vector position;
-    private Vector velocity;
+    private final MutableVector position;
+    /**
+     * The size of the toric space the spaceship flies in.
+     */
+    private final double width;
+    private final double height;
+    private final MutableVector velocity;
     private double fuel;
     private double invulnerability;
     private double NumberOfLives;
     /**
-     * The forward direction for the spaceship, encoding the rotation
-     * from horizontal of its image and the direction of acceleration.
+     * The rotation from horizontal of the image of the spaceship. The
+     * forward direction, also the direction of acceleration, is the vector
+     * (cosine, sine) of this rotation.
+     */
+    private final Rotation heading = new Rotation();
+    /**
+     * The rotation done by the spaceship when turning during one update.
      */
-    private Vector direction = new Vector(1, 0);
+    private final Rotation turn = new Rotation();
     /**
      * Controls if the main engine, with forward acceleration, is powered on.
      */
@@ -63,13 +90,38 @@ public class Spaceship {
      * Initially the spaceship will be positioned at the center of space.
      */
     public Spaceship() {
-        this.position =
-                new Vector(
-                        Space.SPACE_HEIGHT / 2,
-                        Space.SPACE_WIDTH / 2
-                );
-        velocity = new Vector(0, 0);
+        this(Space.SPACE_WIDTH, Space.SPACE_HEIGHT);
+    }
+
+    /**
+     * Builds a spaceship at the center of a space of a given size.
+     *
+     * @param width the width of the space
+     * @param height the height of the space
+     */
+    public Spaceship(double width, double height) {
+        this.width = width;
+        this.height = height;
+        this.position = new MutableVector(width / 2, height / 2);
+        velocity = new MutableVector(0, 0);
+        NumberOfLives = 5;
+    }
+
+    /**
+     * Puts the spaceship back in the state of a new spaceship, at the
+     * center of space, with its engines off.
+     */
+    void reset() {
+        position.set(width / 2, height / 2);
+        velocity.set(0, 0);
+        heading.set(1, 0);
+        fuel = 0;
+        invulnerability = 0;
         NumberOfLives = 5;
+        isMainEngineOn = false;
+        isLeftEngineOn = false;
+        isRightEngineOn = false;
+        isMainEngineRecoil = false;
     }
 
     public static List<Vector> getContactPoints() {
@@ -80,25 +132,64 @@ public class Spaceship {
      * @return the position of the spaceship
      */
     public Vector getPosition() {
-        return position;
+        return position.toVector();
     }
 
     public Vector getVelocity() {
-        return velocity;
+        return velocity.toVector();
+    }
+
+    double getX() {
+        return position.getX();
+    }
+
+    double getY() {
+        return position.getY();
+    }
+
+    double getVelocityX() {
+        return velocity.getX();
+    }
+
+    double getVelocityY() {
+        return velocity.getY();
     }
+
+    double getHeadingCosine() {
+        return heading.getCosine();
+    }
+
+    double getHeadingSine() {
+        return heading.getSine();
+    }
+
     /**
      * @return the angle of the spaceship in degree, where 0 is facing right.
      */
     public double getDirectionAngle() {
-        return direction.angle();
+        return heading.getDegrees();
     }
 
     public Vector getAcceleration() {
+        return getDirection().multiply(getEnginePower());
+    }
+
+    /**
+     * @return the forward direction of the spaceship, with norm 1
+     */
+    public Vector getDirection() {
+        return new Vector(heading.getCosine(), heading.getSine());
+    }
+
+    /**
+     * @return the acceleration produced by the engines, along the direction
+     */
+    private double getEnginePower() {
         if (isMainEngineOn())
-            return direction.multiply(MAIN_ENGINE_POWER_1);
+            return MAIN_ENGINE_POWER_1;
         if (isMainEngineRecoil())
-            return direction.multiply(ENGINE_DECELERATION);
-        return direction.multiply(0);
+            return ENGINE_DECELERATION;
+        return 0;
     }
 
     private double getCurrentConsumption() {
@@ -166,8 +257,10 @@ public class Spaceship {
      */
     public void update(double dt) {
         if (isMainEngineOn()) {
-            position = position.add(getVelocity().multiply(dt));
-            position = Space.toricRemap(position);
+            position.addScaled(velocity, dt);
+            position.set(
+                    Space.toricRemap(position.getX(), width),
+                    Space.toricRemap(position.getY(), height));
             updateVelocity(dt);
         }
         updateDirection(dt);
@@ -178,11 +271,16 @@ public class Spaceship {
 
     public void updateDirection(double dt) {
         if (isRightEngineOn() || isLeftEngineOn())
-            direction = direction.rotate((ANGULAR_VELOCITY + getAutonomy(dt)));
+            heading.compose(turn.setDegrees(-(ANGULAR_VELOCITY + getAutonomy(dt))))
+                    .normalize();
     }
 
     public void updateVelocity(double dt) {
-        velocity = velocity.add(getAcceleration().multiply(getAutonomy(dt)));
+        double power = getEnginePower();
+        double autonomy = getAutonomy(dt);
+        velocity.add(
+                heading.getCosine() * power * autonomy,
+                heading.getSine() * power * autonomy);
     }
 
     /**
@@ -223,27 +321,91 @@ public class Spaceship {
         isMainEngineRecoil = false;
     }
 
+    /** Writes the state of the spaceship, see {@link SpaceCodec}. The
+     * engines are packed into one byte.
+     * @param buffer the buffer receiving the state
+     */
+    void write(ByteBuffer buffer) {
+        buffer.putDouble(position.getX());
+        buffer.putDouble(position.getY());
+        buffer.putDouble(velocity.getX());
+        buffer.putDouble(velocity.getY());
+        buffer.putDouble(heading.getCosine());
+        buffer.putDouble(heading.getSine());
+        buffer.putDouble(fuel);
+        buffer.putDouble(invulnerability);
+        buffer.putDouble(NumberOfLives);
+        buffer.put((byte) ((isMainEngineOn ? 1 : 0)
+                | (isLeftEngineOn ? 2 : 0)
+                | (isRightEngineOn ? 4 : 0)
+                | (isMainEngineRecoil ? 8 : 0)));
+    }
+
+    /** Replaces the state of the spaceship by a state written by
+     * {@link #write(ByteBuffer)}.
+     * @param buffer the buffer holding the state
+     */
+    void read(ByteBuffer buffer) {
+        position.set(buffer.getDouble(), buffer.getDouble());
+        velocity.set(buffer.getDouble(), buffer.getDouble());
+        heading.set(buffer.getDouble(), buffer.getDouble());
+        fuel = buffer.getDouble();
+        invulnerability = buffer.getDouble();
+        NumberOfLives = buffer.getDouble();
+        byte engines = buffer.get();
+        isMainEngineOn = (engines & 1) != 0;
+        isLeftEngineOn = (engines & 2) != 0;
+        isRightEngineOn = (engines & 4) != 0;
+        isMainEngineRecoil = (engines & 8) != 0;
+    }
+
     public void setInvulnerability(double dt) {
         if (!isInvulnerable())
             invulnerability = Math.max(invulnerability, dt);
     }
     public boolean collides(Asteroid asteroid) {
-
-        for (Vector point : getContactPoints()) {
-            if (invulnerability>=0)
-                break;
-            if (asteroid.contains(point.rotate(getDirectionAngle()).translate(position))) {
-                NumberOfLives -= 1;
-                return true;
-            }
+        if (invulnerability>=0)
+            return false;
+        placeContactPoints();
+        if (asteroid.containsAny(contactXs, contactYs, contactXs.length)) {
+            NumberOfLives -= 1;
+            return true;
         }
         return false;
     }
 
+    /**
+     * Computes the contact points for the current position and direction
+     * of the spaceship, as <em>point.rotate(getDirectionAngle()).translate(position)</em>
+     * would, without evaluating any trigonometric function.
+     */
+    private void placeContactPoints() {
+        heading.apply(contactPointXs, contactPointYs, 0, contactXs.length,
+                position.getX(), position.getY(),
+                contactXs, contactYs, 0);
+    }
+
     public Projectile fire() {
        return new Projectile(
-               position.add(direction.multiply(30)),
-        direction.multiply(100).add(getVelocity()));
+               new Vector(
+                       position.getX() + heading.getCosine() * 30,
+                       position.getY() + heading.getSine() * 30),
+               new Vector(
+                       heading.getCosine() * 100 + velocity.getX(),
+                       heading.getSine() * 100 + velocity.getY()));
+    }
+
+    /**
+     * Fires a projectile directly into a pool, without allocating it.
+     *
+     * @param projectiles the pool receiving the projectile
+     */
+    public void fire(ProjectilePool projectiles) {
+        projectiles.spawn(
+                position.getX() + heading.getCosine() * 30,
+                position.getY() + heading.getSine() * 30,
+                heading.getCosine() * 100 + velocity.getX(),
+                heading.getSine() * 100 + velocity.getY());
     }
 
 
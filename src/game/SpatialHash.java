@@ -0,0 +1,240 @@
+package game;
+
+/**
+ * A uniform grid over the toric space, indexing the asteroids of a field
+ * by the cell containing their center. Cells are at least as large as the
+ * largest asteroid, so an asteroid containing a point has its center
+ * in the cell of the point or in one of the eight neighbouring cells.
+ * Neighbourhoods wrap around the edges of the space.
+ * <p>
+ * The grid is rebuilt from scratch each time the asteroids move, with a
+ * counting sort that does not allocate once the buffers are large enough.
+ * It also counts, since the last rebuild, how many candidate pairs it
+ * produced and how many of them needed an exact test.
+ */
+public class SpatialHash {
+
+  /**
+   * Bound on the number of cells along each axis.
+   */
+  private static final int MAX_CELLS_PER_AXIS = 256;
+
+  private final double width;
+  private final double height;
+
+  private int columns = 1;
+  private int rows = 1;
+  private double cellWidth;
+  private double cellHeight;
+
+  /**
+   * The slots in cell c are cellItems[cellStart[c]] to cellItems[cellStart[c+1]-1].
+   */
+  private int[] cellStart = new int[2];
+  private int[] cellItems = new int[0];
+  private int[] itemCells = new int[0];
+  private int itemCount;
+
+  private final int[] neighbourColumns = new int[3];
+  private final int[] neighbourRows = new int[3];
+
+  private long candidatePairCount;
+  private long exactTestCount;
+  private long hitCount;
+
+
+  /**
+   * @param width  the width of the toric space
+   * @param height the height of the toric space
+   */
+  public SpatialHash(double width, double height) {
+    this.width = width;
+    this.height = height;
+    this.cellWidth = width;
+    this.cellHeight = height;
+  }
+
+
+  double getWidth() {
+    return width;
+  }
+
+  double getHeight() {
+    return height;
+  }
+
+
+  /**
+   * Indexes the current positions of all the asteroids of a field, and
+   * resets the counters.
+   *
+   * @param field the asteroids to index
+   */
+  void rebuild(AsteroidField field) {
+    candidatePairCount = 0;
+    exactTestCount = 0;
+    hitCount = 0;
+    resize(field.getMaximalRadius());
+    itemCount = field.size();
+    if (cellItems.length < itemCount) {
+      cellItems = new int[2 * itemCount];
+      itemCells = new int[2 * itemCount];
+    }
+    int cellCount = columns * rows;
+    for (int cell = 0; cell <= cellCount; cell++) {
+      cellStart[cell] = 0;
+    }
+    for (int slot = 0; slot < itemCount; slot++) {
+      int cell = cellOf(field.getX(slot), field.getY(slot));
+      itemCells[slot] = cell;
+      cellStart[cell + 1]++;
+    }
+    for (int cell = 0; cell < cellCount; cell++) {
+      cellStart[cell + 1] += cellStart[cell];
+    }
+    for (int slot = 0; slot < itemCount; slot++) {
+      int cell = itemCells[slot];
+      cellItems[cellStart[cell]++] = slot;
+    }
+    for (int cell = cellCount; cell > 0; cell--) {
+      cellStart[cell] = cellStart[cell - 1];
+    }
+    cellStart[0] = 0;
+  }
+
+
+  private void resize(double maximalRadius) {
+    columns = cellsPerAxis(width, maximalRadius);
+    rows = cellsPerAxis(height, maximalRadius);
+    cellWidth = width / columns;
+    cellHeight = height / rows;
+    if (cellStart.length < columns * rows + 1) {
+      cellStart = new int[columns * rows + 1];
+    }
+  }
+
+
+  private static int cellsPerAxis(double length, double minimalCellLength) {
+    if (minimalCellLength <= 0) {
+      return 1;
+    }
+    int cells = (int) Math.floor(length / minimalCellLength);
+    return Math.max(1, Math.min(cells, MAX_CELLS_PER_AXIS));
+  }
+
+
+  private int cellOf(double x, double y) {
+    return row(y) * columns + column(x);
+  }
+
+  private int column(double x) {
+    double remapped = x - Math.floor(x / width) * width;
+    return Math.min((int) (remapped / cellWidth), columns - 1);
+  }
+
+  private int row(double y) {
+    double remapped = y - Math.floor(y / height) * height;
+    return Math.min((int) (remapped / cellHeight), rows - 1);
+  }
+
+
+  /**
+   * Collects the slots of the asteroids that may contain a point: those
+   * in the cell of the point and in the neighbouring cells.
+   *
+   * @param x          the abscissa of the point, in any toric coordinates
+   * @param y          the ordinate of the point, in any toric coordinates
+   * @param candidates a buffer receiving the slots, at least as large as the field
+   * @return the number of slots written in <em>candidates</em>
+   */
+  int query(double x, double y, int[] candidates) {
+    int count = query(x, y, candidates, neighbourColumns, neighbourRows);
+    candidatePairCount += count;
+    return count;
+  }
+
+  /**
+   * Same as {@link #query(double, double, int[])}, using buffers owned by
+   * the caller and leaving the counters untouched, so that several threads
+   * can query the grid at the same time. Their counts are added afterwards
+   * with {@link #addCounts(long, long, long)}.
+   *
+   * @param x          the abscissa of the point, in any toric coordinates
+   * @param y          the ordinate of the point, in any toric coordinates
+   * @param candidates a buffer receiving the slots, at least as large as the field
+   * @param columnBuffer a buffer of 3 integers
+   * @param rowBuffer  a buffer of 3 integers
+   * @return the number of slots written in <em>candidates</em>
+   */
+  int query(double x, double y, int[] candidates, int[] columnBuffer, int[] rowBuffer) {
+    int nbColumns = neighbours(column(x), columns, columnBuffer);
+    int nbRows = neighbours(row(y), rows, rowBuffer);
+    int count = 0;
+    for (int i = 0; i < nbRows; i++) {
+      for (int j = 0; j < nbColumns; j++) {
+        int cell = rowBuffer[i] * columns + columnBuffer[j];
+        for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+          candidates[count++] = cellItems[k];
+        }
+      }
+    }
+    return count;
+  }
+
+
+  /**
+   * Computes the distinct indices of a cell and its two neighbours along
+   * one axis, wrapping around the axis.
+   */
+  private static int neighbours(int index, int length, int[] neighbours) {
+    int count = 0;
+    for (int delta = -1; delta <= 1; delta++) {
+      int neighbour = Math.floorMod(index + delta, length);
+      boolean isNew = true;
+      for (int i = 0; i < count; i++) {
+        isNew &= neighbours[i] != neighbour;
+      }
+      if (isNew) {
+        neighbours[count++] = neighbour;
+      }
+    }
+    return count;
+  }
+
+
+  /**
+   * Adds the counts of a batch of queries and exact tests.
+   *
+   * @param candidatePairs the number of candidate pairs produced
+   * @param exactTests the number of candidate pairs tested exactly
+   * @param hits the number of exact tests that found a hit
+   */
+  void addCounts(long candidatePairs, long exactTests, long hits) {
+    candidatePairCount += candidatePairs;
+    exactTestCount += exactTests;
+    hitCount += hits;
+  }
+
+
+  /**
+   * @return the number of candidate pairs produced since the last rebuild
+   */
+  public long getCandidatePairCount() {
+    return candidatePairCount;
+  }
+
+  /**
+   * @return the number of candidate pairs tested exactly since the last rebuild
+   */
+  public long getExactTestCount() {
+    return exactTestCount;
+  }
+
+  /**
+   * @return the number of exact tests that found a hit since the last rebuild
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+}
@@ -0,0 +1,189 @@
+package headless;
+
+import game.Command;
+import game.Space;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Runs the game without any display, from the command line. A space is
+ * simulated for a number of ticks of fixed duration, with the player
+ * replaced by an input policy, and the runner reports the throughput,
+ * the allocation rate of all the threads and the final state of the game.
+ * <p>
+ * Usage: {@code java headless.HeadlessRunner [options]}, with options
+ * <ul>
+ *   <li>{@code --asteroids N}: the number of initial asteroids (default 10);</li>
+ *   <li>{@code --seed S}: the seed of the initial asteroids and of the random policy (default 0);</li>
+ *   <li>{@code --ticks N}: the number of measured ticks (default 10000);</li>
+ *   <li>{@code --warmup N}: the number of ticks simulated before measuring (default 0);</li>
+ *   <li>{@code --dt D}: the duration of a tick, in seconds (default 1/120);</li>
+ *   <li>{@code --policy idle|random|FILE}: the input policy, a file being a
+ *   script for {@link ScriptedPolicy} (default random);</li>
+ *   <li>{@code --fire P}: the probability to fire at each tick, for the random policy (default 0.1);</li>
+ *   <li>{@code --threads N}: the number of threads updating large worlds in parallel,
+ *   0 for a sequential update (default 0).</li>
+ * </ul>
+ * The run stops early if the game is over.
+ */
+public class HeadlessRunner {
+
+  private int asteroidCount = Space.INITIAL_ASTEROID_COUNT;
+  private long seed = 0;
+  private long tickCount = 10000;
+  private long warmupCount = 0;
+  private double dt = 1. / 120;
+  private String policyName = "random";
+  private double fireProbability = 0.1;
+  private int threadCount = 0;
+
+
+  public static void main(String[] args) {
+    HeadlessRunner runner = new HeadlessRunner();
+    try {
+      runner.parse(args);
+      runner.run();
+    } catch (IllegalArgumentException | IOException e) {
+      System.err.println(e.getMessage());
+      System.err.println(
+        "usage: HeadlessRunner [--asteroids N] [--seed S] [--ticks N] [--warmup N]"
+          + " [--dt D] [--policy idle|random|FILE] [--fire P] [--threads N]");
+      System.exit(2);
+    }
+  }
+
+
+  private void parse(String[] args) {
+    for (int i = 0; i < args.length; i += 2) {
+      if (i + 1 == args.length) {
+        throw new IllegalArgumentException("missing value for " + args[i]);
+      }
+      String value = args[i + 1];
+      switch (args[i]) {
+        case "--asteroids":
+          asteroidCount = Integer.parseInt(value);
+          break;
+        case "--seed":
+          seed = Long.parseLong(value);
+          break;
+        case "--ticks":
+          tickCount = Long.parseLong(value);
+          break;
+        case "--warmup":
+          warmupCount = Long.parseLong(value);
+          break;
+        case "--dt":
+          dt = Double.parseDouble(value);
+          break;
+        case "--policy":
+          policyName = value;
+          break;
+        case "--fire":
+          fireProbability = Double.parseDouble(value);
+          break;
+        case "--threads":
+          threadCount = Integer.parseInt(value);
+          break;
+        default:
+          throw new IllegalArgumentException("unknown option " + args[i]);
+      }
+    }
+  }
+
+  private InputPolicy createPolicy() throws IOException {
+    switch (policyName) {
+      case "idle":
+        return InputPolicy.idle();
+      case "random":
+        return new RandomPolicy(seed, fireProbability);
+      default:
+        return ScriptedPolicy.load(Path.of(policyName));
+    }
+  }
+
+
+  private void run() throws IOException {
+    Space space = new Space(asteroidCount, seed);
+    if (threadCount > 0) {
+      space.setParallelism(new ForkJoinPool(threadCount));
+    }
+    InputPolicy policy = createPolicy();
+    Consumer<Command> apply = command -> command.applyTo(space);
+
+    long tick = 0;
+    boolean isGameOver = false;
+    while (tick < warmupCount && !isGameOver) {
+      isGameOver = tick(space, policy, apply, tick++);
+    }
+
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    long measuredTicks = 0;
+    while (measuredTicks < tickCount && !isGameOver) {
+      isGameOver = tick(space, policy, apply, tick++);
+      measuredTicks++;
+    }
+    double seconds = (System.nanoTime() - start) * 1e-9;
+    long allocated = allocatedBytes() - allocatedBefore;
+
+    System.out.println(String.format(Locale.ROOT, "ticks:           %d (%.3f s simulated)",
+      measuredTicks, measuredTicks * dt));
+    System.out.println(String.format(Locale.ROOT, "wall time:       %.3f s", seconds));
+    System.out.println(String.format(Locale.ROOT, "ticks/s:         %.1f", measuredTicks / seconds));
+    if (allocatedBefore < 0) {
+      System.out.println("allocation:      not supported by this JVM");
+    } else {
+      System.out.println(String.format(Locale.ROOT, "allocation:      %.1f MB/s, %.1f bytes/tick",
+        allocated / seconds / 1e6, (double) allocated / Math.max(measuredTicks, 1)));
+    }
+    System.out.println(String.format(Locale.ROOT, "final state:     tick %d, %s", tick,
+      isGameOver ? "game over" : "running"));
+    System.out.println(String.format(Locale.ROOT, "  asteroids:     %d", space.getAsteroids().size()));
+    System.out.println(String.format(Locale.ROOT, "  projectiles:   %d", space.getProjectiles().size()));
+    System.out.println(String.format(Locale.ROOT, "  score:         %.0f (x%d)",
+      space.getScore().getScore(), space.getScore().getMultiplier()));
+    System.out.println(String.format(Locale.ROOT, "  lives:         %.0f",
+      space.getSpaceship().getLifeNumbers()));
+    System.out.println(String.format(Locale.ROOT, "  spaceship:     %s",
+      space.getSpaceship().getPosition()));
+  }
+
+  /**
+   * Simulates a tick as the simulation thread does.
+   * @return whether the game is over
+   */
+  private boolean tick(Space space, InputPolicy policy, Consumer<Command> apply, long tick) {
+    policy.commands(tick, apply);
+    return space.tick(dt);
+  }
+
+  /**
+   * @return the number of bytes allocated so far by all the live threads,
+   * so that the work of the pool updating the space with {@code --threads}
+   * is counted, or -1 if the JVM cannot measure it
+   */
+  private static long allocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+    if (!sunBean.isThreadAllocatedMemorySupported() || !sunBean.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    long total = 0;
+    for (long bytes : sunBean.getThreadAllocatedBytes(sunBean.getAllThreadIds())) {
+      if (bytes > 0) {
+        total += bytes;
+      }
+    }
+    return total;
+  }
+
+}
@@ -0,0 +1,27 @@
+package headless;
+
+import game.Command;
+
+import java.util.function.Consumer;
+
+/**
+ * Plays the role of the player when the game runs without a display: before
+ * each tick, a policy decides which commands to give to the spaceship.
+ */
+public interface InputPolicy {
+
+  /** Gives the commands of a tick.
+   * @param tick the index of the tick about to be simulated
+   * @param commands receives the commands to apply before the tick
+   */
+  void commands(long tick, Consumer<Command> commands);
+
+
+  /**
+   * @return a policy never giving any command
+   */
+  static InputPolicy idle() {
+    return (tick, commands) -> { };
+  }
+
+}
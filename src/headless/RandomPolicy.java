@@ -0,0 +1,53 @@
+package headless;
+
+import game.Command;
+
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * A policy pressing and releasing keys at random, like a restless player.
+ * Each engine is toggled with a small probability at each tick, and the gun
+ * is fired with a given probability.
+ */
+public class RandomPolicy implements InputPolicy {
+
+  private static final double TOGGLE_PROBABILITY = 0.02;
+
+  private final Random random;
+  private final double fireProbability;
+  private boolean isMainEngineOn;
+  private boolean isLeftEngineOn;
+  private boolean isRightEngineOn;
+
+
+  /**
+   * @param seed the seed of the random choices
+   * @param fireProbability the probability to fire at each tick
+   */
+  public RandomPolicy(long seed, double fireProbability) {
+    this.random = new Random(seed);
+    this.fireProbability = fireProbability;
+  }
+
+
+  @Override
+  public void commands(long tick, Consumer<Command> commands) {
+    if (random.nextDouble() < TOGGLE_PROBABILITY) {
+      isMainEngineOn = !isMainEngineOn;
+      commands.accept(isMainEngineOn ? Command.START_MAIN_ENGINE : Command.STOP_MAIN_ENGINE);
+    }
+    if (random.nextDouble() < TOGGLE_PROBABILITY) {
+      isLeftEngineOn = !isLeftEngineOn;
+      commands.accept(isLeftEngineOn ? Command.START_LEFT_ENGINE : Command.STOP_LEFT_ENGINE);
+    }
+    if (random.nextDouble() < TOGGLE_PROBABILITY) {
+      isRightEngineOn = !isRightEngineOn;
+      commands.accept(isRightEngineOn ? Command.START_RIGHT_ENGINE : Command.STOP_RIGHT_ENGINE);
+    }
+    if (random.nextDouble() < fireProbability) {
+      commands.accept(Command.FIRE);
+    }
+  }
+
+}
@@ -0,0 +1,59 @@
+package headless;
+
+import game.InputRecording;
+import game.Space;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Replays a recorded session without any display, as fast as possible,
+ * and checks that it ends in the recorded state. Sessions are recorded by
+ * the game when the system property {@code asteroids.recording} is set.
+ * <p>
+ * Usage: {@code java headless.ReplayRunner FILE [--repeat N]}, where the
+ * session is replayed N times (default 1), for instance to profile it.
+ * The exit status is 1 if a replay does not end in the recorded state.
+ */
+public class ReplayRunner {
+
+  public static void main(String[] args) {
+    try {
+      if (args.length != 1 && !(args.length == 3 && args[1].equals("--repeat"))) {
+        throw new IllegalArgumentException("expected a file");
+      }
+      int repeatCount = args.length == 3 ? Integer.parseInt(args[2]) : 1;
+      InputRecording recording = InputRecording.load(Path.of(args[0]));
+      System.exit(replay(recording, repeatCount) ? 0 : 1);
+    } catch (IllegalArgumentException | IOException e) {
+      System.err.println(e.getMessage());
+      System.err.println("usage: ReplayRunner FILE [--repeat N]");
+      System.exit(2);
+    }
+  }
+
+  /**
+   * @return whether all the replays ended in the recorded state
+   */
+  private static boolean replay(InputRecording recording, int repeatCount) {
+    System.out.println(String.format(Locale.ROOT, "recording:       seed %d, %d ticks (%.3f s), %d commands",
+      recording.getSeed(), recording.getTickCount(), recording.getSimulatedTime(),
+      recording.getCommandCount()));
+    boolean matches = true;
+    for (int run = 1; run <= repeatCount; run++) {
+      long start = System.nanoTime();
+      Space space = recording.replay();
+      double seconds = (System.nanoTime() - start) * 1e-9;
+      boolean runMatches = recording.matches(space);
+      matches &= runMatches;
+      System.out.println(String.format(Locale.ROOT,
+        "replay %d:        %.3f s, %.1f ticks/s, %.1fx real time, %s",
+        run, seconds, recording.getTickCount() / seconds,
+        recording.getSimulatedTime() / seconds,
+        runMatches ? "final state matches" : "FINAL STATE DIFFERS"));
+    }
+    return matches;
+  }
+
+}
@@ -0,0 +1,77 @@
+package headless;
+
+import game.Command;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A policy replaying a script. Each line of a script contains a tick index
+ * and the name of a command, for instance {@code 120 FIRE}. Empty lines and
+ * lines starting with {@code #} are ignored. Lines must be sorted by tick.
+ */
+public class ScriptedPolicy implements InputPolicy {
+
+  private final long[] ticks;
+  private final Command[] commands;
+  private int next;
+
+
+  /**
+   * @param lines the lines of the script
+   * @throws IllegalArgumentException if a line is malformed or out of order
+   */
+  public ScriptedPolicy(List<String> lines) {
+    List<Long> tickList = new ArrayList<>();
+    List<Command> commandList = new ArrayList<>();
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i).trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] words = line.split("\\s+");
+      try {
+        if (words.length != 2) {
+          throw new IllegalArgumentException("expected a tick and a command");
+        }
+        long tick = Long.parseLong(words[0]);
+        if (!tickList.isEmpty() && tick < tickList.get(tickList.size() - 1)) {
+          throw new IllegalArgumentException("ticks must be sorted");
+        }
+        tickList.add(tick);
+        commandList.add(Command.valueOf(words[1]));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException(
+          "script line " + (i + 1) + ": " + e.getMessage(), e);
+      }
+    }
+    ticks = new long[tickList.size()];
+    for (int i = 0; i < ticks.length; i++) {
+      ticks[i] = tickList.get(i);
+    }
+    commands = commandList.toArray(new Command[0]);
+  }
+
+  /**
+   * @param path the file containing the script
+   * @return the policy replaying the script
+   * @throws IOException if the file cannot be read
+   */
+  public static ScriptedPolicy load(Path path) throws IOException {
+    return new ScriptedPolicy(Files.readAllLines(path));
+  }
+
+
+  @Override
+  public void commands(long tick, Consumer<Command> commands) {
+    while (next < ticks.length && ticks[next] <= tick) {
+      commands.accept(this.commands[next]);
+      next++;
+    }
+  }
+
+}
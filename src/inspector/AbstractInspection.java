@@ -6,12 +6,55 @@ public abstract class AbstractInspection implements Inspection {
 
   protected TreeItem<String> item;
 
+  /**
+   * Whether an item of the inspection was expanded since the last update.
+   */
+  private boolean isFullUpdatePending;
+
   @Override
   public TreeItem<String> getItem() {
     return item;
   }
 
   @Override
-  public abstract void update();
+  public abstract void update(View view);
+
+  /**
+   * Asks the next update to refresh the whole inspection, shown or not,
+   * as the children of an expanded item are displayed before they are laid
+   * out. The update waits for the next rendering, which reads the model
+   * safely, so that expansion listeners never read it themselves.
+   */
+  protected void requestFullUpdate() {
+    isFullUpdatePending = true;
+  }
+
+  /**
+   * Runs the full update requested since the last update, if any.
+   * @param view the view displaying the inspection
+   * @return whether the inspection was updated
+   */
+  protected boolean runPendingFullUpdate(View view) {
+    if (!isFullUpdatePending) {
+      return false;
+    }
+    isFullUpdatePending = false;
+    view.updateAll(this);
+    return true;
+  }
+
+  /**
+   * Sets the text of the item, unless it is already displayed, so that the
+   * tree view does not redraw it.
+   */
+  protected void setValue(String value) {
+    setText(item, value);
+  }
+
+  protected static void setText(TreeItem<String> item, String value) {
+    if (!value.equals(item.getValue())) {
+      item.setValue(value);
+    }
+  }
 
 }
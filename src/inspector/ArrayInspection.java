@@ -1,62 +1,53 @@
 package inspector;
 
 
-import javafx.scene.control.TreeItem;
-
 import java.util.function.Supplier;
 
-public class ArrayInspection<T,S> extends AbstractInspection {
+public class ArrayInspection<T,S> extends SequenceInspection {
 
   private final Supplier<S[]> getter;
-  private final String name;
   private S[] array;
-  private Inspection[] inspections;
+  private boolean isLoaded = false;
 
   public ArrayInspection(Supplier<S[]> getter, String name) {
+    super(name);
     this.getter = getter;
-    this.name = name;
-    item = new TreeItem<>(name);
     initialize();
   }
 
-  private void initialize() {
-    array = getter.get();
-    getItem().getChildren().clear();
-    if (array == null) {
-      getItem().setValue(name + ": null");
-      return;
-    }
-    inspections = new Inspection[array.length];
-    for (int i = 0; i < array.length; i++) {
-      createValue(i);
+
+  @Override
+  protected boolean reload() {
+    S[] currentArray = getter.get();
+    if (isLoaded && currentArray == array) {
+      return false;
     }
+    array = currentArray;
+    isLoaded = true;
+    return true;
   }
 
-  private void createValue(int index) {
-    S value = array[index];
-    Class<?> subClass = value.getClass();
-    String indexName = Integer.toString(index);
-    Inspection inspection =
-      Inspections.buildInspector(
-        subClass,
-        () -> array[index],
-        indexName
-      );
-    inspections[index] = inspection;
-    inspection.update();
-    item.getChildren().add(inspection.getItem());
+  @Override
+  protected boolean isNull() {
+    return array == null;
   }
 
+  @Override
+  protected int getLength() {
+    return array.length;
+  }
 
   @Override
-  public void update() {
-    S[] currentArray = getter.get();
-    if (currentArray != array) {
-      initialize();
-      return;
-    }
-    for (Inspection inspection : inspections) {
-      inspection.update();
+  protected void getElements(int start, Object[] target, int count) {
+    System.arraycopy(array, start, target, 0, count);
+  }
+
+  @Override
+  protected Inspection makeInspection(int index, Object element) {
+    String indexName = Integer.toString(index);
+    if (element == null) {
+      return new ConstantInspection(indexName, "null");
     }
+    return Inspections.buildInspector(element.getClass(), () -> element, indexName);
   }
 }
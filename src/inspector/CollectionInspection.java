@@ -1,94 +1,72 @@
 package inspector;
 
-import javafx.scene.control.TreeItem;
-
 import java.util.*;
-import java.util.function.Function;
 import java.util.function.Supplier;
 
-public class CollectionInspection<T> extends AbstractInspection {
+public class CollectionInspection<T> extends SequenceInspection {
 
   private final Supplier<Collection<T>> getter;
   private Collection<T> values;
-  private final Map<T, Inspection> inspections = new HashMap<>();
-  private final String name;
 
 
 
   public <P> CollectionInspection(Supplier<Collection<T>> getter, String name) {
+    super(name);
     this.getter = getter;
-    this.name = name;
-    this.item = new TreeItem<>("");
     item.setExpanded(false);
-    update();
+    initialize();
   }
 
-  private void initCollection() {
+  @Override
+  protected boolean reload() {
     Collection<T> collection = getter.get();
     if (this.values == collection) {
-      return;
+      return false;
     }
     this.values = collection;
-    this.item.getChildren().clear();
-    this.inspections.clear();
+    return true;
   }
 
-  private String getDescription(Collection<T> values) {
-    return name + "(" + values.size() + ")";
-  }
-
-
   @Override
-  public void update() {
-    initCollection();
-    item.setValue(getDescription(values));
-    Set<T> seen = new HashSet<>();
-    for (T value : values) {
-      updateValue(value);
-      seen.add(value);
-    }
-    removeUnseen(seen);
-
+  protected String describe(int length) {
+    return name + "(" + length + ")";
   }
 
-  private void removeUnseen(Set<T> seen) {
-    List<Map.Entry<T, Inspection>> entriesToRemove = new ArrayList<>();
-    for (Map.Entry<T, Inspection> entry : inspections.entrySet()) {
-      if (!seen.contains(entry.getKey())) {
-        entriesToRemove.add(entry);
-      }
-    }
-    entriesToRemove.forEach(this::remove);
+  @Override
+  protected boolean isNull() {
+    return values == null;
   }
 
-
-  private void remove(Map.Entry<T, Inspection> entry) {
-    inspections.remove(entry.getKey());
-    TreeItem<String> item = entry.getValue().getItem();
-    item.getParent().getChildren().remove(item);
+  @Override
+  protected int getLength() {
+    return values.size();
   }
 
-
-  private void updateValue(T value) {
-    if (inspections.containsKey(value)) {
-      inspections.get(value).update();
+  @Override
+  protected void getElements(int start, Object[] target, int count) {
+    if (values instanceof List && values instanceof RandomAccess) {
+      List<T> list = (List<T>) values;
+      for (int i = 0; i < count; i++) {
+        target[i] = list.get(start + i);
+      }
       return;
     }
-    createValue(value);
+    Iterator<T> iterator = values.iterator();
+    for (int i = 0; i < start; i++) {
+      iterator.next();
+    }
+    for (int i = 0; i < count; i++) {
+      target[i] = iterator.next();
+    }
   }
 
-  private void createValue(T value) {
-    Class<?> subClass = value.getClass();
-    Inspection inspection =
-      Inspections.buildInspector(
-        subClass,
-        () -> value,
-        subClass.getName()
-        );
-    inspections.put(value, inspection);
-    inspection.update();
-    item.getChildren().add(inspection.getItem());
+  @Override
+  protected Inspection makeInspection(int index, Object element) {
+    if (element == null) {
+      return new ConstantInspection(Integer.toString(index), "null");
+    }
+    Class<?> subClass = element.getClass();
+    return Inspections.buildInspector(subClass, () -> element, subClass.getName());
   }
 
 }
-
@@ -10,7 +10,7 @@ public class ConstantInspection extends AbstractInspection {
   }
 
   @Override
-  public void update() {
+  public void update(View view) {
     // do nothing
   }
 }
@@ -40,12 +40,18 @@ public class FieldInspection<S> extends AbstractInspection {
   }
 
   @Override
-  public void update() {
-    S currentChild = getter.get();
-    if (currentChild == null || !currentChild.equals(childValue)) {
-      reinitialize();
+  public void update(View view) {
+    if (!view.isShown(item)) {
       return;
     }
-    childInspection.update();
+    boolean isSameChild = view.read(() -> {
+      S currentChild = getter.get();
+      return currentChild != null && currentChild.equals(childValue);
+    });
+    if (!isSameChild) {
+      view.runLocked(this::reinitialize);
+      return;
+    }
+    childInspection.update(view);
   }
 }
@@ -13,11 +13,13 @@ public class FormattedInspection<T> extends AbstractInspection {
     this.name = name;
     this.supplier = supplier;
     this.item = new TreeItem<>(name);
-    update();
+    setValue(name + ": " + supplier.get());
   }
 
   @Override
-  public void update() {
-    item.setValue(name + ": " + supplier.get());
+  public void update(View view) {
+    if (view.isShown(item)) {
+      setValue(view.read(() -> name + ": " + supplier.get()));
+    }
   }
 }
@@ -5,5 +5,9 @@ import javafx.scene.control.TreeItem;
 public interface Inspection {
 
   TreeItem<String> getItem();
-  void update();
+  /**
+   * Displays the current values of the inspected object.
+   * @param view the view displaying the inspection, reading the model
+   */
+  void update(View view);
 }
@@ -2,7 +2,6 @@ package inspector;
 
 import inspector.primitiveArray.PrimitiveArrayInspection;
 
-import java.lang.reflect.Field;
 import java.util.*;
 import java.util.function.Supplier;
 
@@ -50,18 +49,6 @@ public class Inspections {
   }
 
 
-  static <O> Supplier fieldSupplier(O object, Field d) {
-    return () -> {
-      try {
-        return d.get(object);
-      } catch (IllegalAccessException e) {
-        e.printStackTrace();
-        return null;
-      }
-    };
-  }
-
-
   private static Supplier<Collection> makeCollectionGetter(Supplier<Collection> getter) {
     return () -> {
       Collection c = getter.get();
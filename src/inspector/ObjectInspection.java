@@ -3,8 +3,6 @@ package inspector;
 import javafx.beans.Observable;
 import javafx.scene.control.TreeItem;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.*;
 import java.util.function.Supplier;
 
@@ -35,50 +33,54 @@ public class ObjectInspection extends AbstractInspection {
 
 
   @Override
-  public void update() {
+  public void update(View view) {
+    if (runPendingFullUpdate(view)) {
+      return;
+    }
+    if (!item.isExpanded() || !view.isShown(item)) {
+      return;
+    }
+    if (!isComplete) {
+      complete(view);
+      return;
+    }
     for (Inspection inspect : observableFields) {
-      inspect.update();
+      inspect.update(view);
     }
   }
 
-  private boolean isComplete = false;
   private void expand(Observable observable) {
-    if (isComplete) {
-      return;
+    if (item.isExpanded()) {
+      requestFullUpdate();
     }
+  }
+
+  private boolean isComplete = false;
+
+  /**
+   * Replaces the placeholder by the inspections of the fields, built while
+   * the model is locked, as they read their first values.
+   */
+  private void complete(View view) {
     isComplete = true;
+    view.runLocked(this::initializeObservableFields);
     item.getChildren().remove(0);
-    initializeObservableFields();
     for (Inspection inspection : observableFields) {
       item.getChildren().add(inspection.getItem());
     }
-    item.setExpanded(true);
   }
 
 
   private void initializeObservableFields() {
-    List<Field> declaredFields =
-      Arrays.asList(inspected.getClass().getDeclaredFields());
-    declaredFields.sort(Comparator.comparing(Field::getName));
-    for (Field field : declaredFields) {
-      if (isObservable(field)) {
-        initializeField(field);
-      }
-    }
-  }
-
-  private boolean isObservable(Field field) {
-    if (field.isAnnotationPresent(Hidden.class)) {
-      return false;
+    for (ObservableField field : ObservableField.of(inspected.getClass())) {
+      initializeField(field);
     }
-    field.setAccessible(true);
-    return !Modifier.isStatic(field.getModifiers());
   }
 
 
-  private void initializeField(Field field) {
+  private void initializeField(ObservableField field) {
     Class<?> subClass = field.getType();
-    Supplier getter = Inspections.fieldSupplier(inspected, field);
+    Supplier getter = field.supplierFor(inspected);
     String name = field.getName();
     Inspection fieldInspection = Inspections.buildInspector(subClass, getter, name);
     observableFields.add(fieldInspection);
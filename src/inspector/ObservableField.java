@@ -0,0 +1,85 @@
+package inspector;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * A field displayed by the inspections of the objects of a class. The fields
+ * of a class are listed, sorted and made accessible once, then shared by all
+ * the inspected instances of the class.
+ * <p>
+ * Reading an accessible field by reflection skips the access checks: it is
+ * as fast as a method handle that is not a constant, and faster than a
+ * var handle.
+ */
+final class ObservableField {
+
+  private static final ClassValue<List<ObservableField>> FIELDS =
+    new ClassValue<>() {
+      @Override
+      protected List<ObservableField> computeValue(Class<?> type) {
+        return listFields(type);
+      }
+    };
+
+  private final Field field;
+
+
+  private ObservableField(Field field) {
+    field.setAccessible(true);
+    this.field = field;
+  }
+
+  /**
+   * @return the non-static fields declared by a class and not hidden, sorted by name
+   */
+  static List<ObservableField> of(Class<?> type) {
+    return FIELDS.get(type);
+  }
+
+  private static List<ObservableField> listFields(Class<?> type) {
+    List<Field> declaredFields = Arrays.asList(type.getDeclaredFields());
+    declaredFields.sort(Comparator.comparing(Field::getName));
+    List<ObservableField> fields = new ArrayList<>();
+    for (Field field : declaredFields) {
+      if (isObservable(field)) {
+        fields.add(new ObservableField(field));
+      }
+    }
+    return Collections.unmodifiableList(fields);
+  }
+
+  private static boolean isObservable(Field field) {
+    return !field.isAnnotationPresent(Hidden.class)
+      && !Modifier.isStatic(field.getModifiers());
+  }
+
+
+  String getName() {
+    return field.getName();
+  }
+
+  Class<?> getType() {
+    return field.getType();
+  }
+
+  Supplier<Object> supplierFor(Object object) {
+    return () -> get(object);
+  }
+
+  Object get(Object object) {
+    try {
+      return field.get(object);
+    } catch (IllegalAccessException e) {
+      e.printStackTrace();
+      return null;
+    }
+  }
+
+}
@@ -2,23 +2,36 @@ package inspector;
 
 import javafx.scene.control.TreeItem;
 
+import java.util.Objects;
 import java.util.function.Supplier;
 
 public class PrimitiveInspection<S> extends AbstractInspection {
 
   private final String name;
   private final Supplier<S> getter;
+  private S value;
 
   public PrimitiveInspection(Supplier<S> getter, String name) {
     this.name = name;
     this.getter = getter;
     item = new TreeItem<>(name);
-    update();
+    show(getter.get());
   }
 
 
   @Override
-  public void update() {
-    item.setValue(name + ": " + getter.get());
+  public void update(View view) {
+    if (!view.isShown(item)) {
+      return;
+    }
+    S currentValue = view.read(getter);
+    if (!Objects.equals(currentValue, value)) {
+      show(currentValue);
+    }
+  }
+
+  private void show(S value) {
+    this.value = value;
+    item.setValue(name + ": " + value);
   }
 }
@@ -0,0 +1,239 @@
+package inspector;
+
+import javafx.scene.control.TreeItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inspects a sequence of elements: an array or a collection. Elements are
+ * inspected only once displayed. A sequence longer than {@link #PAGE_SIZE}
+ * is split into pages, such as {@code [0..999]}, whose elements are inspected
+ * only once the page is expanded, so that large sequences cost nothing until
+ * looked at.
+ * <p>
+ * The elements of an expanded page are compared by identity with the ones
+ * it displayed: an element inspection is kept while the same element stays
+ * at its index, and replaced otherwise.
+ * <p>
+ * The length and the elements of the sequence are read together, in one
+ * locked section, so that they are consistent; the inspections of the
+ * elements are then updated one by one.
+ */
+public abstract class SequenceInspection extends AbstractInspection {
+
+  public static final int PAGE_SIZE = 1000;
+
+  protected final String name;
+  private final List<Page> pages = new ArrayList<>();
+  private int pageCount = -1;
+  private Object[] buffer = new Object[0];
+  private final List<Page> loadedPages = new ArrayList<>();
+
+
+  public SequenceInspection(String name) {
+    this.name = name;
+    this.item = new TreeItem<>(name);
+    item.expandedProperty().addListener(observable -> requestFullUpdate());
+  }
+
+
+  /** Reads the sequence again.
+   * @return whether the sequence is not the one read before
+   */
+  protected abstract boolean reload();
+  protected abstract boolean isNull();
+  protected abstract int getLength();
+
+  /**
+   * Copies the elements of indices start to start + count - 1 into target.
+   */
+  protected abstract void getElements(int start, Object[] target, int count);
+  protected abstract Inspection makeInspection(int index, Object element);
+
+  protected String describe(int length) {
+    return name + " (" + length + ")";
+  }
+
+
+  /**
+   * Reads the sequence and forgets the inspections of its elements.
+   */
+  protected void initialize() {
+    reload();
+    clearPages();
+    if (layout() && pageCount == 0) {
+      pages.get(0).load();
+    }
+  }
+
+  @Override
+  public void update(View view) {
+    if (runPendingFullUpdate(view)) {
+      return;
+    }
+    if (!view.isShown(item)) {
+      return;
+    }
+    loadedPages.clear();
+    view.runLocked(() -> load(view));
+    for (Page page : loadedPages) {
+      page.updateInspections(view);
+    }
+  }
+
+  /**
+   * Reads the sequence, and the elements of its shown pages.
+   */
+  private void load(View view) {
+    if (reload()) {
+      clearPages();
+    }
+    if (!layout()) {
+      return;
+    }
+    if (pageCount == 0) {
+      pages.get(0).load();
+    } else if (item.isExpanded()) {
+      for (Page page : pages) {
+        if (view.isShown(page.item)) {
+          page.load();
+        }
+      }
+    }
+  }
+
+  /**
+   * Describes the sequence, and lays out its pages.
+   * @return whether the sequence is not null
+   */
+  private boolean layout() {
+    if (isNull()) {
+      clearPages();
+      setValue(name + ": null");
+      return false;
+    }
+    int length = getLength();
+    setValue(describe(length));
+    layoutPages(length);
+    return true;
+  }
+
+  private void clearPages() {
+    pages.clear();
+    pageCount = -1;
+    item.getChildren().clear();
+  }
+
+  /**
+   * Splits the sequence into pages, unless it fits into one page, in which
+   * case the elements are the children of the item of the sequence.
+   */
+  private void layoutPages(int length) {
+    int count = length <= PAGE_SIZE ? 0 : (length + PAGE_SIZE - 1) / PAGE_SIZE;
+    if (count != pageCount) {
+      clearPages();
+      pageCount = count;
+      if (count == 0) {
+        pages.add(new Page(item, 0));
+      }
+      for (int index = 0; index < count; index++) {
+        Page page = new Page(new TreeItem<>(), index * PAGE_SIZE);
+        page.item.expandedProperty().addListener(observable -> requestFullUpdate());
+        pages.add(page);
+        item.getChildren().add(page.item);
+      }
+    }
+    for (Page page : pages) {
+      page.size = Math.min(PAGE_SIZE, length - page.start);
+      if (page.item != item) {
+        setText(page.item, "[" + page.start + ".." + (page.start + page.size - 1) + "]");
+      }
+    }
+  }
+
+
+  private final class Page {
+
+    private final TreeItem<String> item;
+    private final TreeItem<String> placeholder = new TreeItem<>("...");
+    private final int start;
+    private int size;
+    private Object[] elements = new Object[0];
+    private Inspection[] inspections = new Inspection[0];
+    private int inspectedCount;
+
+    private Page(TreeItem<String> item, int start) {
+      this.item = item;
+      this.start = start;
+    }
+
+    /**
+     * Reads the elements if the page is expanded, or else makes it
+     * expandable with a placeholder.
+     */
+    private void load() {
+      List<TreeItem<String>> children = item.getChildren();
+      boolean hasPlaceholder = !children.isEmpty() && children.get(0) == placeholder;
+      if (!item.isExpanded()) {
+        if (!hasPlaceholder && inspectedCount == 0 && size > 0) {
+          children.add(placeholder);
+        } else if (hasPlaceholder && size == 0) {
+          children.remove(0);
+        }
+        return;
+      }
+      if (hasPlaceholder) {
+        children.remove(0);
+      }
+      loadElements(children);
+      loadedPages.add(this);
+    }
+
+    /**
+     * Inspects the new elements, keeping the inspections of the elements
+     * still at their index, to be updated by {@link #updateInspections}.
+     */
+    private void loadElements(List<TreeItem<String>> children) {
+      if (buffer.length < size) {
+        buffer = new Object[Math.min(PAGE_SIZE, 2 * size)];
+      }
+      if (elements.length < size) {
+        elements = Arrays.copyOf(elements, size);
+        inspections = Arrays.copyOf(inspections, size);
+      }
+      getElements(start, buffer, size);
+      for (int i = 0; i < size; i++) {
+        Object element = buffer[i];
+        if (i >= inspectedCount) {
+          inspect(i, element);
+          children.add(inspections[i].getItem());
+        } else if (element != elements[i]) {
+          inspect(i, element);
+          children.set(i, inspections[i].getItem());
+        }
+      }
+      if (inspectedCount > size) {
+        children.subList(size, inspectedCount).clear();
+        Arrays.fill(elements, size, inspectedCount, null);
+        Arrays.fill(inspections, size, inspectedCount, null);
+      }
+      Arrays.fill(buffer, 0, size, null);
+      inspectedCount = size;
+    }
+
+    private void updateInspections(View view) {
+      for (int i = 0; i < inspectedCount; i++) {
+        inspections[i].update(view);
+      }
+    }
+
+    private void inspect(int i, Object element) {
+      elements[i] = element;
+      inspections[i] = makeInspection(start + i, element);
+    }
+
+  }
+
+}
@@ -1,27 +1,145 @@
 package inspector;
 
+import javafx.application.Platform;
 import javafx.event.Event;
+import javafx.scene.Node;
+import javafx.scene.control.IndexedCell;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
+import javafx.scene.control.skin.VirtualFlow;
 import javafx.scene.input.KeyEvent;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+/**
+ * Displays an inspection in a tree view. The model may be modified by
+ * another thread: inspections read it through {@link #read(Supplier)}, each
+ * value in a short section run by the lock runner, while the tree items are
+ * updated without holding the lock.
+ * <p>
+ * Inspections update only their shown items, so that the cost of the
+ * inspector depends on what is displayed, not on the size of the model.
+ * Expanding an item renders the inspector again, on the JavaFX thread.
+ */
 public class View {
 
   private final Inspection inspection;
+  private final TreeView<String> treeView;
+  private final Consumer<Runnable> lockRunner;
 
+  /**
+   * The items displayed by the tree view, with their ancestors, or null if
+   * they are not known, in which case all the items are considered shown.
+   */
+  private Set<TreeItem<?>> shownItems;
+  private final Set<TreeItem<?>> visibleItems =
+    Collections.newSetFromMap(new IdentityHashMap<>());
+  private boolean isRenderPending;
 
-  public View(TreeView treeView, Inspection inspection) {
+
+  /**
+   * @param treeView the tree view displaying the inspection
+   * @param inspection the inspection of the model
+   * @param lockRunner runs an action while no other thread modifies the model
+   */
+  public View(TreeView<String> treeView, Inspection inspection, Consumer<Runnable> lockRunner) {
     this.inspection = inspection;
+    this.treeView = treeView;
+    this.lockRunner = lockRunner;
     treeView.addEventFilter(KeyEvent.ANY, Event::consume);
     TreeItem<String> root = inspection.getItem();
     treeView.setRoot(root);
     root.setExpanded(true);
+    root.addEventHandler(TreeItem.<String>branchExpandedEvent(), event -> requestRender());
   }
 
   public void render() {
-    inspection.update();
+    isRenderPending = false;
+    shownItems = findShownItems();
+    inspection.update(this);
   }
 
-}
+  /**
+   * Renders the inspector once the expansion of an item has been handled,
+   * so that its children are displayed even while the game is paused.
+   */
+  private void requestRender() {
+    if (!isRenderPending) {
+      isRenderPending = true;
+      Platform.runLater(this::render);
+    }
+  }
+
+
+  /**
+   * @return whether the item, or one of its descendants, is displayed
+   */
+  public boolean isShown(TreeItem<?> item) {
+    return shownItems == null || shownItems.contains(item);
+  }
+
+  /**
+   * Updates an inspection as if all its items were shown. Used when an item
+   * is expanded, as its children, not updated while hidden, are displayed
+   * before the next rendering.
+   */
+  public void updateAll(Inspection inspection) {
+    Set<TreeItem<?>> items = shownItems;
+    shownItems = null;
+    try {
+      inspection.update(this);
+    } finally {
+      shownItems = items;
+    }
+  }
 
+  /** Reads values of the model while no other thread modifies it.
+   * @param reader reads the values, without modifying the tree items
+   * @return the value returned by the reader
+   */
+  public <T> T read(Supplier<T> reader) {
+    Object[] value = new Object[1];
+    lockRunner.accept(() -> value[0] = reader.get());
+    @SuppressWarnings("unchecked")
+    T result = (T) value[0];
+    return result;
+  }
+
+  /** Runs an action reading the model, such as building inspections,
+   * while no other thread modifies it.
+   * @param action the action to run
+   */
+  public void runLocked(Runnable action) {
+    lockRunner.accept(action);
+  }
+
+
+  /**
+   * @return the items of the rows displayed by the tree view, with their
+   * ancestors, or null if the rows are not laid out yet
+   */
+  private Set<TreeItem<?>> findShownItems() {
+    Node flow = treeView.lookup(".virtual-flow");
+    if (!(flow instanceof VirtualFlow)) {
+      return null;
+    }
+    IndexedCell<?> firstCell = ((VirtualFlow<?>) flow).getFirstVisibleCell();
+    IndexedCell<?> lastCell = ((VirtualFlow<?>) flow).getLastVisibleCell();
+    if (firstCell == null || lastCell == null) {
+      return null;
+    }
+    visibleItems.clear();
+    for (int row = firstCell.getIndex(); row <= lastCell.getIndex(); row++) {
+      TreeItem<?> item = treeView.getTreeItem(row);
+      while (item != null && visibleItems.add(item)) {
+        item = item.getParent();
+      }
+    }
+    return visibleItems;
+  }
+
+}
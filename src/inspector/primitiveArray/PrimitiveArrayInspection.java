@@ -1,12 +1,12 @@
 package inspector.primitiveArray;
 
-import inspector.AbstractInspection;
 import inspector.Inspection;
-import javafx.scene.control.TreeItem;
+import inspector.SequenceInspection;
 
+import java.util.Arrays;
 import java.util.function.Supplier;
 
-public abstract class PrimitiveArrayInspection extends AbstractInspection {
+public abstract class PrimitiveArrayInspection extends SequenceInspection {
 
   public static PrimitiveArrayInspection build(Class<?> arrayClass, Supplier getter, String name) {
    Class<?> eltClass = arrayClass.getComponentType();
@@ -26,46 +26,41 @@ public abstract class PrimitiveArrayInspection extends AbstractInspection {
 
   protected abstract boolean arrayHasChanged();
   protected abstract Inspection makeInspection(int i, String toString);
-  protected abstract int getLength();
   protected abstract void resetArray();
   protected abstract boolean arrayIsNull();
 
-  private final String name;
-  Inspection[] inspectors;
-
 
   public PrimitiveArrayInspection(String name) {
-    this.name = name;
-    this.item = new TreeItem<>(name);
+    super(name);
   }
 
 
-
   @Override
-  public void update() {
-    if (arrayHasChanged()) {
-      initialize();
-      return;
-    }
-    for (int i = 0; i < getLength(); i++) {
-      inspectors[i].update();
+  protected boolean reload() {
+    if (!arrayHasChanged()) {
+      return false;
     }
+    resetArray();
+    return true;
   }
 
+  @Override
+  protected boolean isNull() {
+    return arrayIsNull();
+  }
 
-  protected void initialize() {
-    resetArray();
-    if (arrayIsNull()) {
-      item.setValue(name + ": null");
-      return;
-    }
-    item.setValue(name + " (" + getLength() + ")");
-    inspectors = new Inspection[getLength()];
-    item.getChildren().clear();
-    for (int i = 0; i < getLength(); i++) {
-      inspectors[i] = makeInspection(i, Integer.toString(i));
-      item.getChildren().add(inspectors[i].getItem());
-    }
+  /**
+   * The elements of a primitive array are read by their inspections, by
+   * index, so there is no element to compare.
+   */
+  @Override
+  protected void getElements(int start, Object[] target, int count) {
+    Arrays.fill(target, 0, count, null);
+  }
+
+  @Override
+  protected Inspection makeInspection(int index, Object element) {
+    return makeInspection(index, Integer.toString(index));
   }
 
 }
@@ -0,0 +1,81 @@
+package tools;
+
+import inspector.InspectWithToString;
+
+/**
+ * 2-dimensional vectors that can be modified. This is the companion of
+ * {@link Vector} for computations repeated many times per second: operations
+ * modify the vector in place, so that no object is allocated.
+ * <p>
+ * Mutable vectors should stay private to the objects owning them. Public
+ * methods should expose immutable copies, with {@link #toVector()}.
+ */
+@InspectWithToString
+public class MutableVector {
+
+  public double x;
+  public double y;
+
+
+  public MutableVector() {
+    this(0, 0);
+  }
+
+  public MutableVector(double x, double y) {
+    this.x = x;
+    this.y = y;
+  }
+
+  public double getX() {
+    return x;
+  }
+
+  public double getY() {
+    return y;
+  }
+
+  /** Sets both coordinates.
+   * @param x the new abscissa
+   * @param y the new ordinate
+   * @return this
+   */
+  public MutableVector set(double x, double y) {
+    this.x = x;
+    this.y = y;
+    return this;
+  }
+
+  /** In-place vector addition.
+   * @param dx abscissa of the vector to add
+   * @param dy ordinate of the vector to add
+   * @return this, set to this + (dx,dy)
+   */
+  public MutableVector add(double dx, double dy) {
+    x = x + dx;
+    y = y + dy;
+    return this;
+  }
+
+  /** In-place addition of a multiple of a vector, the usual
+   * integration step <em>position += velocity * dt</em>.
+   * @param vec a vector
+   * @param scalar the factor applied to vec
+   * @return this, set to this + scalar * vec
+   */
+  public MutableVector addScaled(MutableVector vec, double scalar) {
+    return add(vec.x * scalar, vec.y * scalar);
+  }
+
+  /**
+   * @return an immutable copy of this
+   */
+  public Vector toVector() {
+    return new Vector(x, y);
+  }
+
+  @Override
+  public String toString() {
+    return "(" + getX() + ", " + getY() + ")";
+  }
+
+}
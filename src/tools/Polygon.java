@@ -6,16 +6,55 @@ import java.util.function.Function;
 
 /**
  * Simple 2-dimensional polygons, defined by a list of vertices.
+ * <p>
+ * Containment tests use the winding number of the polygon around the
+ * point, computed with edge functions: for each edge, the sign of a
+ * linear function of the point tells on which side of the edge it lies.
+ * The coefficients of these functions are computed once, when the polygon
+ * is built, so that testing a point needs neither allocation nor
+ * trigonometric function.
  */
 public class Polygon {
 
   private final List<Vector> vertices;
 
+  /**
+   * Coordinates of the vertices.
+   */
+  private final double[] xs;
+  private final double[] ys;
+
+  /**
+   * Edge i goes from vertex i to vertex i+1 (modulo the number of vertices).
+   * The point (x,y) is on the left of edge i if
+   * edgeA[i] * x + edgeB[i] * y + edgeC[i] is positive.
+   */
+  private final double[] edgeA;
+  private final double[] edgeB;
+  private final double[] edgeC;
+
   /**
    * @param vertices vertices in counterclockwise order.
    */
   public Polygon(List<Vector> vertices) {
     this.vertices = vertices;
+    int nbVertices = vertices.size();
+    xs = new double[nbVertices];
+    ys = new double[nbVertices];
+    for (int i = 0; i < nbVertices; i++) {
+      Vector vertex = vertices.get(i);
+      xs[i] = vertex.getX();
+      ys[i] = vertex.getY();
+    }
+    edgeA = new double[nbVertices];
+    edgeB = new double[nbVertices];
+    edgeC = new double[nbVertices];
+    for (int i = 0; i < nbVertices; i++) {
+      int next = (i + 1 == nbVertices) ? 0 : i + 1;
+      edgeA[i] = ys[i] - ys[next];
+      edgeB[i] = xs[next] - xs[i];
+      edgeC[i] = xs[i] * ys[next] - xs[next] * ys[i];
+    }
   }
 
   /**
@@ -30,16 +69,95 @@ public class Polygon {
    * @return true if the point is inside the polygon
    */
   public boolean contains(Vector point) {
-    Vector previous =
-      vertices.get(nbVertices() - 1).subtract(point).normalize();
-    double angle = 0;
-    for (Vector current : vertices) {
-      Vector vector = current.subtract(point).normalize();
-      double dangle = previous.angleWith(vector);
-      angle = angle + dangle;
-      previous = vector;
+    return contains(point.getX(), point.getY());
+  }
+
+
+  /** Checks whether an arbitrary point is inside or outside the polygon.
+   * @param x the abscissa of the point
+   * @param y the ordinate of the point
+   * @return true if the point is inside the polygon
+   */
+  public boolean contains(double x, double y) {
+    int winding = 0;
+    int nbVertices = xs.length;
+    for (int i = 0; i < nbVertices; i++) {
+      int next = (i + 1 == nbVertices) ? 0 : i + 1;
+      double side = edgeA[i] * x + edgeB[i] * y + edgeC[i];
+      if (ys[i] <= y) {
+        if (ys[next] > y && side > 0) {
+          winding++;
+        }
+      } else if (ys[next] <= y && side < 0) {
+        winding--;
+      }
+    }
+    return winding != 0;
+  }
+
+
+  /** Checks which points of a batch are inside the polygon.
+   * @param pointXs the abscissas of the points
+   * @param pointYs the ordinates of the points
+   * @param count the number of points to check
+   * @param results receives, for each point, whether it is inside the polygon
+   * @return the number of points inside the polygon
+   */
+  public int contains(double[] pointXs, double[] pointYs, int count, boolean[] results) {
+    int nbInside = 0;
+    for (int i = 0; i < count; i++) {
+      results[i] = contains(pointXs[i], pointYs[i]);
+      if (results[i]) {
+        nbInside++;
+      }
+    }
+    return nbInside;
+  }
+
+
+  /** Checks whether at least one point of a batch is inside the polygon.
+   * @param pointXs the abscissas of the points
+   * @param pointYs the ordinates of the points
+   * @param count the number of points to check
+   * @return true if one of the points is inside the polygon
+   */
+  public boolean containsAny(double[] pointXs, double[] pointYs, int count) {
+    for (int i = 0; i < count; i++) {
+      if (contains(pointXs[i], pointYs[i])) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  /** Checks whether a point is inside a polygon given by the coordinates
+   * of its vertices, stored from index <em>offset</em> in two arrays.
+   * @param xs the abscissas of the vertices
+   * @param ys the ordinates of the vertices
+   * @param offset the index of the first vertex in the arrays
+   * @param nbVertices the number of vertices of the polygon
+   * @param x the abscissa of the point
+   * @param y the ordinate of the point
+   * @return true if the point is inside the polygon
+   */
+  public static boolean contains(double[] xs, double[] ys, int offset, int nbVertices,
+                                 double x, double y) {
+    int winding = 0;
+    int end = offset + nbVertices;
+    for (int i = offset; i < end; i++) {
+      int next = (i + 1 == end) ? offset : i + 1;
+      double side =
+        (xs[next] - xs[i]) * (y - ys[i]) - (x - xs[i]) * (ys[next] - ys[i]);
+      if (ys[i] <= y) {
+        if (ys[next] > y && side > 0) {
+          winding++;
+        }
+      } else if (ys[next] <= y && side < 0) {
+        winding--;
+      }
     }
-    return Math.abs(angle) > 1e-3;
+    return winding != 0;
   }
 
 
@@ -61,7 +179,7 @@ public class Polygon {
    * @return the rotated polygon
    */
   public Polygon rotate(double angleInDegree) {
-    return transform(vec -> vec.rotate(angleInDegree));
+    return transform(Rotation.ofDegrees(angleInDegree)::apply);
   }
 
   /** Computes the translation of a polygon.
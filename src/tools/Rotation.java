@@ -0,0 +1,177 @@
+package tools;
+
+import inspector.InspectWithToString;
+
+/**
+ * Rotations around (0,0), represented by the cosine and the sine of their
+ * angle. A rotation of <em>d</em> degrees transforms points exactly as
+ * {@link Vector#rotate(double)} with the same angle, but the trigonometric
+ * functions are evaluated once, when the angle is set, instead of once for
+ * each transformed point.
+ * <p>
+ * Rotations are mutable, so that an orientation evolving over time can be
+ * updated in place by composing it with small rotations. Composing many
+ * rotations lets rounding errors accumulate, which {@link #normalize()}
+ * corrects.
+ */
+@InspectWithToString
+public class Rotation {
+
+  private double cosine;
+  private double sine;
+
+
+  /**
+   * Builds the identity rotation.
+   */
+  public Rotation() {
+    this(1, 0);
+  }
+
+  /**
+   * @param cosine the cosine of the angle of the rotation
+   * @param sine   the sine of the angle of the rotation
+   */
+  public Rotation(double cosine, double sine) {
+    this.cosine = cosine;
+    this.sine = sine;
+  }
+
+  /**
+   * @param degrees the angle of rotation
+   * @return the rotation by this angle
+   */
+  public static Rotation ofDegrees(double degrees) {
+    return new Rotation().setDegrees(degrees);
+  }
+
+
+  public double getCosine() {
+    return cosine;
+  }
+
+  public double getSine() {
+    return sine;
+  }
+
+  /**
+   * @return the angle of the rotation, between -180 and 180 degrees
+   */
+  public double getDegrees() {
+    return Math.toDegrees(Math.atan2(sine, cosine));
+  }
+
+
+  /** Sets the angle of the rotation.
+   * @param degrees the angle of rotation
+   * @return this
+   */
+  public Rotation setDegrees(double degrees) {
+    double rad = Math.toRadians(degrees);
+    return set(Math.cos(rad), Math.sin(rad));
+  }
+
+  /** Sets the cosine and sine of the angle of the rotation.
+   * @param cosine the cosine of the angle
+   * @param sine   the sine of the angle
+   * @return this
+   */
+  public Rotation set(double cosine, double sine) {
+    this.cosine = cosine;
+    this.sine = sine;
+    return this;
+  }
+
+  /** Copies another rotation.
+   * @param rotation the rotation to copy
+   * @return this
+   */
+  public Rotation set(Rotation rotation) {
+    return set(rotation.cosine, rotation.sine);
+  }
+
+
+  /** Composes in place this rotation with another one: the angles add up.
+   * @param rotation another rotation
+   * @return this
+   */
+  public Rotation compose(Rotation rotation) {
+    return compose(rotation.cosine, rotation.sine);
+  }
+
+  /** Composes in place this rotation with the rotation of given cosine and sine.
+   * @param otherCosine the cosine of the other rotation
+   * @param otherSine   the sine of the other rotation
+   * @return this
+   */
+  public Rotation compose(double otherCosine, double otherSine) {
+    return set(
+      cosine * otherCosine - sine * otherSine,
+      sine * otherCosine + cosine * otherSine
+    );
+  }
+
+  /** Rescales the cosine and sine so that the sum of their squares is 1.
+   * A first order correction is enough for the tiny errors due to composition.
+   * @return this
+   */
+  public Rotation normalize() {
+    double factor = (3 - cosine * cosine - sine * sine) / 2;
+    return set(cosine * factor, sine * factor);
+  }
+
+
+  /** Applies the rotation to a point.
+   * @param x the abscissa of the point
+   * @param y the ordinate of the point
+   * @return the abscissa of the rotated point
+   */
+  public double applyX(double x, double y) {
+    return cosine * x + sine * y;
+  }
+
+  /** Applies the rotation to a point.
+   * @param x the abscissa of the point
+   * @param y the ordinate of the point
+   * @return the ordinate of the rotated point
+   */
+  public double applyY(double x, double y) {
+    return -sine * x + cosine * y;
+  }
+
+  /** Applies the rotation to a vector.
+   * @param vec a vector
+   * @return the rotated vector
+   */
+  public Vector apply(Vector vec) {
+    return new Vector(applyX(vec.getX(), vec.getY()), applyY(vec.getX(), vec.getY()));
+  }
+
+  /** Applies the rotation followed by a translation to many points.
+   * @param xs the abscissas of the points
+   * @param ys the ordinates of the points
+   * @param offset the index of the first point in <em>xs</em> and <em>ys</em>
+   * @param count the number of points
+   * @param dx the abscissa of the translation
+   * @param dy the ordinate of the translation
+   * @param resultXs receives the abscissas of the transformed points
+   * @param resultYs receives the ordinates of the transformed points
+   * @param resultOffset the index of the first transformed point in the results
+   */
+  public void apply(double[] xs, double[] ys, int offset, int count,
+                    double dx, double dy,
+                    double[] resultXs, double[] resultYs, int resultOffset) {
+    for (int i = 0; i < count; i++) {
+      double x = xs[offset + i];
+      double y = ys[offset + i];
+      resultXs[resultOffset + i] = cosine * x + sine * y + dx;
+      resultYs[resultOffset + i] = -sine * x + cosine * y + dy;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getDegrees() + " degrees";
+  }
+
+}
@@ -1,10 +1,18 @@
 package viewModel;
 
 import game.Asteroid;
+import game.Command;
+import game.PhaseProfiler;
+import game.Projectile;
+import game.RandomGenerator;
+import game.Simulation;
 import game.Space;
+import game.SpaceSnapshot;
 import game.Spaceship;
-import game.Projectile;
 import views.View;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 
@@ -15,26 +23,202 @@ import java.util.List;
  * we may sometimes use the space from the view). The view should only contain
  * rendering methods and event handlers, while the model should contain
  * all the data and the logic of the application.
+ * <p>
+ * The model is simulated on a thread of its own. Commands are forwarded to
+ * the simulation, and the view displays the latest two snapshots it
+ * published, interpolated so that motion stays smooth when the frames and
+ * the ticks do not line up.
+ * <p>
+ * If the system property {@value #RECORDING_PROPERTY} gives a file, the
+ * session is recorded into it when the application exits, so that it can
+ * be replayed offline with {@code headless.ReplayRunner}.
+ * <p>
+ * The simulation keeps its recent states, so that the paused game can be
+ * stepped backward, within the number of megabytes given by the system
+ * property {@value #REWIND_BUDGET_PROPERTY} (32 by default, 0 to disable).
+ * <p>
+ * The phases of the ticks and of the frames are timed by a profiler. If the
+ * system property {@value #PROFILE_PROPERTY} gives a file, their durations
+ * are saved into it when the game is over.
+ * <p>
+ * The space built by {@link #createSpace()} is larger than the window by
+ * the factor given by the system property {@value #WORLD_SCALE_PROPERTY}
+ * (1 by default), in each direction. When the world does not fit into the
+ * window, the view follows the spaceship.
  */
 public class ViewModel {
 
+  public static final String RECORDING_PROPERTY = "asteroids.recording";
+  public static final String REWIND_BUDGET_PROPERTY = "asteroids.rewindMegabytes";
+  public static final String PROFILE_PROPERTY = "asteroids.profile";
+  public static final String WORLD_SCALE_PROPERTY = "asteroids.worldScale";
+
   private final Space gameState; // the model
   private final View view; // the view
+  private final Simulation simulation; // runs the model
+  private SpaceSnapshot snapshot; // the state to display
+  private SpaceSnapshot previousSnapshot; // the state displayed before
+  private final PhaseProfiler profiler = new PhaseProfiler(); // times ticks and frames
 
 
   public ViewModel(Space space, View view) {
     this.gameState = space;
     this.view = view;
+    space.setProfiler(profiler);
+    this.simulation = new Simulation(space, Simulation.DEFAULT_TICK_RATE);
+    fetchSnapshots();
+    int rewindBudget = Integer.getInteger(REWIND_BUDGET_PROPERTY, 32);
+    if (rewindBudget > 0) {
+      simulation.enableRewind(rewindBudget << 20);
+    }
+    String recordingFile = System.getProperty(RECORDING_PROPERTY);
+    if (recordingFile != null) {
+      simulation.startRecording();
+      Runtime.getRuntime().addShutdownHook(
+        new Thread(() -> saveRecording(Path.of(recordingFile))));
+    }
+  }
+
+
+  /**
+   * Build the space of a new game, scaled by the system property
+   * {@value #WORLD_SCALE_PROPERTY}.
+   *
+   * @return a space with the standard number of asteroids
+   * @throws IllegalArgumentException if the property is not a finite number at least 1
+   */
+  public static Space createSpace() {
+    String property = System.getProperty(WORLD_SCALE_PROPERTY, "1");
+    double scale;
+    try {
+      scale = Double.parseDouble(property);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid " + WORLD_SCALE_PROPERTY + ": " + property, e);
+    }
+    if (!(scale >= 1) || Double.isInfinite(scale)) {
+      throw new IllegalArgumentException(
+        WORLD_SCALE_PROPERTY + " must be a finite number, at least 1: " + property);
+    }
+    return new Space(Space.INITIAL_ASTEROID_COUNT, new RandomGenerator().nextLong(),
+      scale * Space.SPACE_WIDTH, scale * Space.SPACE_HEIGHT);
+  }
+
+
+  /**
+   * Fetch the latest state of the model before a new frame. The model is
+   * updated by the simulation thread at a fixed rate, whatever the delay
+   * between frames, so the delay is not needed.
+   */
+  public void tick() {
+    fetchSnapshots();
   }
 
+  private void fetchSnapshots() {
+    snapshot = simulation.getSnapshot();
+    previousSnapshot = simulation.getPreviousSnapshot();
+  }
 
   /**
-   * Update the model and view after time delay dt.
+   * Update the model by a single time step, while the simulation is paused.
    * @param dt the time delay in seconds.
    */
-  public void tick(double dt) {
-    gameState.update(dt);
-    view.render();
+  public void step(double dt) {
+    simulation.step(dt);
+    fetchSnapshots();
+  }
+
+  /**
+   * Move the paused model one time step backward, if its state was kept.
+   */
+  public void stepBack() {
+    simulation.stepBack();
+    fetchSnapshots();
+  }
+
+  /**
+   * Move the paused model to a time step whose state was kept.
+   * @param tick a time step between getRewindStart() and getRewindEnd()
+   */
+  public void rewindTo(long tick) {
+    simulation.rewindTo(tick);
+    fetchSnapshots();
+  }
+
+  /**
+   * @return the oldest time step the paused model can be moved to, or -1
+   */
+  public long getRewindStart() {
+    return simulation.getRewindStart();
+  }
+
+  /**
+   * @return the newest time step the paused model can be moved to, or -1
+   */
+  public long getRewindEnd() {
+    return simulation.getRewindEnd();
+  }
+
+  /**
+   * @return the number of time steps simulated to reach the displayed state
+   */
+  public long getTick() {
+    return snapshot.getTick();
+  }
+
+  /**
+   * Start or resume the simulation of the model.
+   */
+  public void startSimulation() {
+    simulation.start();
+  }
+
+  /**
+   * Pause the simulation of the model.
+   */
+  public void pauseSimulation() {
+    simulation.pause();
+  }
+
+  /**
+   * Save the session recorded since the start, if the simulation records it.
+   * @param path the file receiving the recording
+   */
+  public void saveRecording(Path path) {
+    try {
+      simulation.saveRecording(path);
+    } catch (IOException | IllegalStateException e) {
+      System.err.println("cannot save the recording: " + e.getMessage());
+    }
+  }
+
+  /**
+   * @return the profiler timing the phases of the ticks and of the frames
+   */
+  public PhaseProfiler getProfiler() {
+    return profiler;
+  }
+
+  /**
+   * Save the durations timed by the profiler, if the system property
+   * {@value #PROFILE_PROPERTY} gives a file.
+   */
+  public void saveProfile() {
+    String profileFile = System.getProperty(PROFILE_PROPERTY);
+    if (profileFile == null) {
+      return;
+    }
+    try {
+      profiler.dump(Path.of(profileFile));
+    } catch (IOException e) {
+      System.err.println("cannot save the profile: " + e.getMessage());
+    }
+  }
+
+  /** Run an action reading the model directly, like the inspector, between two ticks.
+   * @param action the action to run
+   */
+  public void runLocked(Runnable action) {
+    simulation.runLocked(action);
   }
 
 
@@ -42,97 +226,142 @@ public class ViewModel {
    * Command to start the main engine of the player's spaceship
    */
   public void startSpaceshipMainEngine() {
-    gameState.getSpaceship().startMainEngine();
+    simulation.submit(Command.START_MAIN_ENGINE);
   }
 
   /**
    * Command to stop the main engine of the player's spaceship
    */
   public void stopSpaceshipMainEngine() {
-    gameState.getSpaceship().stopMainEngine();
+    simulation.submit(Command.STOP_MAIN_ENGINE);
   }
 
 
-  public void startSpaceshipLeftEngine() { gameState.getSpaceship().startLeftEngine(); }
+  public void startSpaceshipLeftEngine() { simulation.submit(Command.START_LEFT_ENGINE); }
 
-  public void stopSpaceshipLeftEngine() { gameState.getSpaceship().stopLeftEngine(); }
+  public void stopSpaceshipLeftEngine() { simulation.submit(Command.STOP_LEFT_ENGINE); }
 
-  public void startSpaceshipRightEngine() { gameState.getSpaceship().startRightEngine(); }
+  public void startSpaceshipRightEngine() { simulation.submit(Command.START_RIGHT_ENGINE); }
 
-  public  void stopSpaceshipRightEngine() { gameState.getSpaceship().stopRightEngine();}
+  public  void stopSpaceshipRightEngine() { simulation.submit(Command.STOP_RIGHT_ENGINE);}
 
-  public void brakeSpaceshipEngine() { gameState.getSpaceship().startBrake();}
+  public void brakeSpaceshipEngine() { simulation.submit(Command.START_BRAKE);}
 
   public void stopSpaceship() {
-    gameState.getSpaceship().stopBreak();
+    simulation.submit(Command.STOP_BRAKE);
   }
   /**
    * @return whether the game is over
    */
   public boolean isGameOver() {
-    return gameState.isGameOver();
+    return snapshot.isGameOver();
   }
 
   public boolean isMainEngineOn() {
-    return gameState.getSpaceship().isMainEngineOn();
+    return snapshot.isMainEngineOn();
   }
 
   public boolean isLeftEngineOn() {
-    return gameState.getSpaceship().isLeftEngineOn();
+    return snapshot.isLeftEngineOn();
   }
   public boolean isRightEngineOn() {
-    return gameState.getSpaceship().isRightEngineOn();
+    return snapshot.isRightEngineOn();
   }
 
   public boolean isMainEngineRecoil() {
-    return gameState.getSpaceship().isMainEngineRecoil();
+    return snapshot.isMainEngineRecoil();
   }
 
   public boolean isSpaceshipInvulnerable() {
-    return gameState.getSpaceship().isInvulnerable();
+    return snapshot.isSpaceshipInvulnerable();
   }
+
   /**
-   * @return the list of asteroids to display
+   * @return the latest state published by the simulation
    */
-  public List<Asteroid> getAsteroids() {
-    return gameState.getAsteroids();
+  public SpaceSnapshot getSnapshot() {
+    return snapshot;
   }
 
   /**
-   * @return the state of the spaceship
+   * @return the state published by the simulation before the latest one
    */
-  public Spaceship getSpaceship() {
-    return gameState.getSpaceship();
+  public SpaceSnapshot getPreviousSnapshot() {
+    return previousSnapshot;
+  }
+
+  /**
+   * @return the simulated time, in seconds, from the previous snapshot to
+   * the latest one, or 0 if the latest one does not follow the previous one
+   */
+  public double getSnapshotInterval() {
+    long ticks = snapshot.getTick() - previousSnapshot.getTick();
+    return ticks > 0 ? ticks * simulation.getTickDuration() : 0;
+  }
+
+  /**
+   * @return where the displayed state lies between the previous snapshot
+   * (0) and the latest one (1). The display runs one snapshot interval
+   * behind the simulation, so that it always lies between two snapshots;
+   * it shows the latest snapshot as is while the simulation is paused.
+   */
+  public double getInterpolationFactor() {
+    double interval = getSnapshotInterval();
+    if (!simulation.isRunning() || interval == 0) {
+      return 1;
+    }
+    double elapsed = (System.nanoTime() - snapshot.getCaptureTime()) * 1e-9;
+    return Math.max(0, Math.min(elapsed / interval, 1));
   }
 
   /**
    * @return the current score
    */
   public double getScore() {
-    return gameState.getScore().getScore();
+    return snapshot.getScore();
   }
 
   public double getSpaceshipFuelPercentage() {
-    return gameState.getSpaceship().getFuelPercentage();
+    return snapshot.getSpaceshipFuelPercentage();
   }
 
   public  double getSpaceshipInvulnerabilityTime() {
-    return  gameState.getSpaceship().getInvulnerabilityTime();
+    return  snapshot.getSpaceshipInvulnerabilityTime();
   }
 
   public double getSpaceshipLiveNumbers() {
-    return gameState.getSpaceship().getLifeNumbers();
-  }
-
-  public List<Projectile> getProjectiles() {
-    return gameState.getProjectiles();
+    return snapshot.getSpaceshipLifeNumbers();
   }
 
   public void fireSpaceshipGun() {
-    gameState.addProjectile(gameState.getSpaceship().fire());
+    simulation.submit(Command.FIRE);
   }
 
   public int getScoreMultiplier() {
-    return gameState.getScore().getMultiplier();
+    return snapshot.getScoreMultiplier();
+  }
+
+  /**
+   * @return the asteroids of the model itself, to be read within
+   * {@link #runLocked(Runnable)}, as the simulation changes them
+   */
+  public List<Asteroid> getAsteroids() {
+    return gameState.getAsteroids();
+  }
+
+  /**
+   * @return the spaceship of the model itself, to be read within
+   * {@link #runLocked(Runnable)}, as the simulation changes it
+   */
+  public Spaceship getSpaceship() {
+    return gameState.getSpaceship();
+  }
+
+  /**
+   * @return the projectiles of the model itself, to be read within
+   * {@link #runLocked(Runnable)}, as the simulation changes them
+   */
+  public List<Projectile> getProjectiles() {
+    return gameState.getProjectiles();
   }
 }
@@ -0,0 +1,170 @@
+package views;
+
+import game.SpaceSnapshot;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Images of the asteroids, drawn once per shape and reused from frame to
+ * frame. The shape of an asteroid is drawn at {@link #ROTATION_COUNT}
+ * orientations, every {@value #ROTATION_STEP_DEGREES} degrees, in the
+ * cells of a single image. An asteroid is then drawn by copying the cell
+ * whose orientation is the nearest to its own.
+ * <p>
+ * Images are kept by shape identifier. When an asteroid splits, its
+ * fragments get new shapes, so their images are drawn anew. The memory
+ * used by the images is bounded by a budget: the images used the least
+ * recently, such as the ones of destroyed asteroids, are dropped first.
+ * <p>
+ * Drawing an image costs a snapshot of a canvas, so only a few images are
+ * drawn per frame. The asteroids lacking an image are left to the caller.
+ */
+class AsteroidSprites {
+
+  static final int ROTATION_STEP_DEGREES = 5;
+  static final int ROTATION_COUNT = 360 / ROTATION_STEP_DEGREES;
+  private static final double ROTATION_STEP = Math.toRadians(ROTATION_STEP_DEGREES);
+  private static final int COLUMN_COUNT = 9;
+  private static final int ROW_COUNT = (ROTATION_COUNT + COLUMN_COUNT - 1) / COLUMN_COUNT;
+
+  /**
+   * The number of images drawn per frame at most, so that a frame where
+   * many asteroids appear does not stall.
+   */
+  private static final int MAX_IMAGES_PER_FRAME = 16;
+
+  private static final int BYTES_PER_PIXEL = 4;
+
+  private final long budget;
+  private long usedBytes;
+  private final Map<Long, Sprite> sprites = new LinkedHashMap<>(16, 0.75f, true);
+  private int imagesDrawn;
+
+  private final Canvas canvas = new Canvas();
+  private final SnapshotParameters parameters = new SnapshotParameters();
+  private double[] xs = new double[0];
+  private double[] ys = new double[0];
+
+
+  /**
+   * @param budget the number of bytes available for the images
+   */
+  AsteroidSprites(long budget) {
+    this.budget = budget;
+    parameters.setFill(Color.TRANSPARENT);
+  }
+
+  /**
+   * Allows a few more images to be drawn.
+   */
+  void startFrame() {
+    imagesDrawn = 0;
+  }
+
+  /** Draws an asteroid from its image, drawing the image first if needed.
+   * @param context the context to draw into
+   * @param snapshot the state of the game
+   * @param index the index of the asteroid
+   * @param x the abscissa of the center of the asteroid on the canvas
+   * @param y the ordinate of the center of the asteroid on the canvas
+   * @return false if the asteroid has no image yet, and was not drawn
+   */
+  boolean draw(GraphicsContext context, SpaceSnapshot snapshot, int index, double x, double y) {
+    Sprite sprite = sprites.get(snapshot.getShapeId(index));
+    if (sprite == null) {
+      if (imagesDrawn == MAX_IMAGES_PER_FRAME) {
+        return false;
+      }
+      imagesDrawn++;
+      sprite = createSprite(snapshot, index);
+      add(snapshot.getShapeId(index), sprite);
+    }
+    double angle = Math.atan2(snapshot.getAsteroidSine(index), snapshot.getAsteroidCosine(index));
+    int rotation = Math.floorMod((int) Math.round(angle / ROTATION_STEP), ROTATION_COUNT);
+    int cellSize = sprite.cellSize;
+    context.drawImage(sprite.image,
+      (rotation % COLUMN_COUNT) * cellSize, (rotation / COLUMN_COUNT) * cellSize,
+      cellSize, cellSize,
+      x - cellSize / 2., y - cellSize / 2., cellSize, cellSize);
+    return true;
+  }
+
+  private void add(long shapeId, Sprite sprite) {
+    sprites.put(shapeId, sprite);
+    usedBytes += sprite.getByteSize();
+    Iterator<Sprite> eldest = sprites.values().iterator();
+    while (usedBytes > budget && sprites.size() > 1) {
+      usedBytes -= eldest.next().getByteSize();
+      eldest.remove();
+    }
+  }
+
+
+  /**
+   * Draws the shape of an asteroid at every orientation. The shape, centered
+   * on (0,0), is recovered from the vertices of the asteroid by undoing its
+   * rotation and translation.
+   */
+  private Sprite createSprite(SpaceSnapshot snapshot, int index) {
+    int nbVertices = snapshot.getVertexCount(index);
+    double[] shapeXs = new double[nbVertices];
+    double[] shapeYs = new double[nbVertices];
+    double cosine = snapshot.getAsteroidCosine(index);
+    double sine = snapshot.getAsteroidSine(index);
+    double radius = 0;
+    for (int i = 0; i < nbVertices; i++) {
+      double dx = snapshot.getVertexXs()[snapshot.getVertexOffset(index) + i] - snapshot.getAsteroidX(index);
+      double dy = snapshot.getVertexYs()[snapshot.getVertexOffset(index) + i] - snapshot.getAsteroidY(index);
+      shapeXs[i] = cosine * dx - sine * dy;
+      shapeYs[i] = sine * dx + cosine * dy;
+      radius = Math.max(radius, Math.hypot(shapeXs[i], shapeYs[i]));
+    }
+    int cellSize = 2 * (int) Math.ceil(radius) + 2;
+    canvas.setWidth(COLUMN_COUNT * cellSize);
+    canvas.setHeight(ROW_COUNT * cellSize);
+    GraphicsContext context = canvas.getGraphicsContext2D();
+    context.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    context.setFill(Color.BROWN);
+    if (xs.length < nbVertices) {
+      xs = new double[nbVertices];
+      ys = new double[nbVertices];
+    }
+    for (int rotation = 0; rotation < ROTATION_COUNT; rotation++) {
+      double rotationCosine = Math.cos(rotation * ROTATION_STEP);
+      double rotationSine = Math.sin(rotation * ROTATION_STEP);
+      double centerX = (rotation % COLUMN_COUNT + 0.5) * cellSize;
+      double centerY = (rotation / COLUMN_COUNT + 0.5) * cellSize;
+      for (int i = 0; i < nbVertices; i++) {
+        xs[i] = rotationCosine * shapeXs[i] + rotationSine * shapeYs[i] + centerX;
+        ys[i] = -rotationSine * shapeXs[i] + rotationCosine * shapeYs[i] + centerY;
+      }
+      context.fillPolygon(xs, ys, nbVertices);
+    }
+    WritableImage image = canvas.snapshot(parameters, null);
+    return new Sprite(image, cellSize);
+  }
+
+
+  private static final class Sprite {
+
+    private final WritableImage image;
+    private final int cellSize;
+
+    private Sprite(WritableImage image, int cellSize) {
+      this.image = image;
+      this.cellSize = cellSize;
+    }
+
+    private long getByteSize() {
+      return (long) BYTES_PER_PIXEL * COLUMN_COUNT * ROW_COUNT * cellSize * cellSize;
+    }
+  }
+
+}
@@ -1,19 +1,16 @@
 package views;
 
-import game.Asteroid;
-import game.Projectile;
-import game.Spaceship;
+import game.LatencyHistogram;
+import game.PhaseProfiler;
+import game.SpaceSnapshot;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
+import javafx.scene.shape.FillRule;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
-import tools.Polygon;
-import tools.Vector;
 import viewModel.ViewModel;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,12 +18,72 @@ import java.util.Map;
 /**
  * An object of this class is responsible for drawing the current state
  * of the game over a JavaFX canvas, and handling GUI events.
+ * <p>
+ * The state drawn is interpolated between the latest two snapshots
+ * published by the simulation, so that motion stays smooth when the frames
+ * and the ticks of the simulation do not line up. The spaceship, whose
+ * motion depends on its engines, is interpolated between its two positions
+ * and headings. Asteroids and projectiles fly in straight lines, so they
+ * are moved back from the latest snapshot along their velocity, which
+ * gives the same positions without pairing them across snapshots.
+ * <p>
+ * Asteroids, then projectiles, are drawn in batches: the outlines of all
+ * the entities of a kind are gathered into a single path, filled at once
+ * with the color of the kind, so that the number of drawing commands does
+ * not depend on the number of entities.
+ * <p>
+ * When the system property {@value #SPRITE_CACHE_PROPERTY} gives a number
+ * of megabytes, asteroids are instead drawn from images of their shapes,
+ * drawn once at a set of orientations, see {@link AsteroidSprites}.
+ * <p>
+ * The world may be larger than the canvas (see {@link ViewModel#WORLD_SCALE_PROPERTY}).
+ * The canvas then shows the part of the world around a camera following
+ * the spaceship, along each direction where the world does not fit. Each
+ * item is drawn at its image, on the toric world, nearest to the camera,
+ * and items whose bounding disk is out of the canvas are not drawn, so
+ * that the cost of rendering depends on what is visible, not on the size
+ * of the world.
+ * <p>
+ * The durations of the phases timed by the profiler of the view model can
+ * be shown over the game, see {@link #toggleProfile()}.
+ * <p>
+ * All the images are loaded when the view is built, and drawn from a
+ * single {@link SpriteAtlas}.
  */
 public class CanvasView {
 
+  public static final String SPRITE_CACHE_PROPERTY = "asteroids.spriteCacheMegabytes";
+
   private final Canvas canvas;
   private final ViewModel viewModel;
   private final GraphicsContext context;
+  private final SpriteAtlas atlas;
+
+  /**
+   * The images of the asteroids, or null if asteroids are drawn as polygons.
+   */
+  private final AsteroidSprites sprites;
+
+  /**
+   * The position and the heading, in degrees, of the spaceship drawn.
+   */
+  private double spaceshipX;
+  private double spaceshipY;
+  private double spaceshipAngle;
+
+  /**
+   * The point of the world shown at the center of the canvas, and the
+   * size of the world drawn.
+   */
+  private double cameraX;
+  private double cameraY;
+  private double worldWidth;
+  private double worldHeight;
+
+  /**
+   * Whether the durations of the phases are shown.
+   */
+  private boolean isProfileShown;
 
   /**
    * @param canvas the canvas on which to draw the game
@@ -36,34 +93,130 @@ public class CanvasView {
     this.canvas = canvas;
     this.viewModel = viewModel;
     context = canvas.getGraphicsContext2D();
+    atlas = SpriteAtlas.load(allImages,
+      Map.of(lifeImg, new SpriteAtlas.ResizedImage(spaceshipImg, PIXEL_POWERUP_WIDTH, PIXEL_POWERUP_HEIGHT)));
+    int spriteCacheMegabytes = Integer.getInteger(SPRITE_CACHE_PROPERTY, 0);
+    sprites = spriteCacheMegabytes > 0 ? new AsteroidSprites((long) spriteCacheMegabytes << 20) : null;
   }
 
    /**
    * Refresh the canvas, using the current state of the game.
    */
    public void render() {
+    SpaceSnapshot snapshot = viewModel.getSnapshot();
+    double factor = viewModel.getInterpolationFactor();
+    double dt = (factor - 1) * viewModel.getSnapshotInterval();
+    worldWidth = snapshot.getWidth();
+    worldHeight = snapshot.getHeight();
+    placeSpaceship(viewModel.getPreviousSnapshot(), snapshot, factor);
+    placeCamera();
     clear();
     renderBackground();
-    render(viewModel.getAsteroids());
-    render(viewModel.getSpaceship());
+    renderAsteroids(snapshot, dt);
+    renderSpaceship();
     renderScore(viewModel.getScore());
     renderFuel(viewModel.getSpaceshipFuelPercentage());
-     for (Projectile bullet: viewModel.getProjectiles()) {
-       render(bullet);
-     }
+     renderProjectiles(snapshot, dt);
      renderLives(context);
+    if (isProfileShown) {
+      renderProfile(viewModel.getProfiler());
+    }
    }
 
+  /**
+   * Shows the durations of the phases if they are hidden, hides them otherwise.
+   */
+  public void toggleProfile() {
+    isProfileShown = !isProfileShown;
+  }
+
+
+  /**
+   * Interpolates the position and the heading of the spaceship between two
+   * snapshots, along the shortest way on the toric world and around the circle.
+   *
+   * @param previous the previous state of the game
+   * @param latest the latest state of the game
+   * @param factor where the drawn state lies, from previous (0) to latest (1)
+   */
+  private void placeSpaceship(SpaceSnapshot previous, SpaceSnapshot latest, double factor) {
+    spaceshipX = previous.getSpaceshipX()
+      + nearestImage(latest.getSpaceshipX() - previous.getSpaceshipX(), worldWidth) * factor;
+    spaceshipY = previous.getSpaceshipY()
+      + nearestImage(latest.getSpaceshipY() - previous.getSpaceshipY(), worldHeight) * factor;
+    spaceshipAngle = previous.getSpaceshipDirectionAngle()
+      + nearestImage(latest.getSpaceshipDirectionAngle() - previous.getSpaceshipDirectionAngle(), 360) * factor;
+  }
+
+  /**
+   * Centers the camera on the spaceship, along each direction where the
+   * world does not fit into the canvas, and on the world otherwise.
+   */
+  private void placeCamera() {
+    cameraX = worldWidth > canvas.getWidth() ? spaceshipX : worldWidth / 2;
+    cameraY = worldHeight > canvas.getHeight() ? spaceshipY : worldHeight / 2;
+  }
+
+  /**
+   * @param x an abscissa in the world
+   * @return the abscissa on the canvas of its image nearest to the camera
+   */
+  private double toCanvasX(double x) {
+    return nearestImage(x - cameraX, worldWidth) + canvas.getWidth() / 2;
+  }
+
+  /**
+   * @param y an ordinate in the world
+   * @return the ordinate on the canvas of its image nearest to the camera
+   */
+  private double toCanvasY(double y) {
+    return nearestImage(y - cameraY, worldHeight) + canvas.getHeight() / 2;
+  }
+
+  private static double nearestImage(double delta, double length) {
+    return delta - Math.floor(delta / length + 0.5) * length;
+  }
 
   /**
-   * Render all the visible asteroids.
+   * @param x the abscissa on the canvas of the center of an item
+   * @param y the ordinate on the canvas of the center of an item
+   * @param radius the radius of a disk containing the item
+   * @return whether the item may appear on the canvas
+   */
+  private boolean isVisible(double x, double y, double radius) {
+    double reach = radius + CULLING_MARGIN;
+    return x + reach >= 0 && x - reach <= canvas.getWidth()
+      && y + reach >= 0 && y - reach <= canvas.getHeight();
+  }
+
+
+  /**
+   * Render all the visible asteroids, as a single path. The vertices of all
+   * the asteroids turn in the same direction, so that overlapping asteroids
+   * are filled with the non-zero rule as if they were drawn one by one.
+   * Asteroids drawn from images are left out of the path.
    *
-   * @param asteroids the list of visible asteroids
+   * @param snapshot the state of the game
+   * @param dt the time from the snapshot to the drawn instant, at most 0
    */
-  private void render(List<Asteroid> asteroids) {
-    for (Asteroid asteroid : asteroids) {
-      render(asteroid);
+  private void renderAsteroids(SpaceSnapshot snapshot, double dt) {
+    context.setFill(Color.BROWN);
+    context.setFillRule(FillRule.NON_ZERO);
+    context.beginPath();
+    if (sprites != null) {
+      sprites.startFrame();
+    }
+    for (int i = 0; i < snapshot.getAsteroidCount(); i++) {
+      double x = toCanvasX(snapshot.getAsteroidX(i) + snapshot.getAsteroidVelocityX(i) * dt);
+      double y = toCanvasY(snapshot.getAsteroidY(i) + snapshot.getAsteroidVelocityY(i) * dt);
+      if (!isVisible(x, y, snapshot.getAsteroidRadius(i))) {
+        continue;
+      }
+      if (sprites == null || !sprites.draw(context, snapshot, i, x, y)) {
+        addAsteroid(snapshot, i, x, y);
+      }
     }
+    context.fill();
   }
 
 
@@ -89,6 +242,34 @@ public class CanvasView {
   }
 
 
+  /**
+   * the font used to render the durations of the phases.
+   */
+  private static final Font profileFont =
+    Font.font("DejaVu Sans Mono", 12);
+
+  /**
+   * Renders the median, the 99th percentile and the maximum of the
+   * durations of each phase, in microseconds, in the top right corner.
+   *
+   * @param profiler the profiler timing the phases
+   */
+  private void renderProfile(PhaseProfiler profiler) {
+    context.setFill(Color.WHITE);
+    context.setFont(profileFont);
+    double x = canvas.getWidth() - 360;
+    double y = 20;
+    context.fillText(String.format("%-22s %8s %8s %8s", "phase (us)", "p50", "p99", "max"), x, y);
+    for (PhaseProfiler.Phase phase : PhaseProfiler.Phase.values()) {
+      LatencyHistogram histogram = profiler.getHistogram(phase);
+      y += 15;
+      context.fillText(String.format("%-22s %8.1f %8.1f %8.1f", phase.getLabel(),
+        histogram.getPercentile(0.5) * 1e-3, histogram.getPercentile(0.99) * 1e-3,
+        histogram.getMax() * 1e-3), x, y);
+    }
+  }
+
+
   /**
    * Remove the current drawing from the canvas.
    */
@@ -106,49 +287,46 @@ public class CanvasView {
 
 
   /**
-   * @param asteroid an asteroid to display
-   */
-  public void render(Asteroid asteroid) {
-    context.setFill(Color.BROWN);
-    render(asteroid.getShape());
-  }
-
-
-  /**
-   * @param shape a polygon to display
+   * Adds the outline of an asteroid to the current path.
+   *
+   * @param snapshot the state of the game
+   * @param index the index of the asteroid to display
+   * @param x the abscissa of the center of the asteroid on the canvas
+   * @param y the ordinate of the center of the asteroid on the canvas
    */
-  private void render(Polygon shape) {
-    int nbPoints = shape.getVertices().size();
-    double[] xs = new double[nbPoints];
-    double[] ys = new double[nbPoints];
-    int i = 0;
-    for (Vector vertex : shape.getVertices()) {
-      xs[i] = vertex.getX();
-      ys[i] = vertex.getY();
-      i++;
+  private void addAsteroid(SpaceSnapshot snapshot, int index, double x, double y) {
+    double[] xs = snapshot.getVertexXs();
+    double[] ys = snapshot.getVertexYs();
+    int start = snapshot.getVertexOffset(index);
+    int end = start + snapshot.getVertexCount(index);
+    double dx = x - snapshot.getAsteroidX(index);
+    double dy = y - snapshot.getAsteroidY(index);
+    context.moveTo(xs[start] + dx, ys[start] + dy);
+    for (int i = start + 1; i < end; i++) {
+      context.lineTo(xs[i] + dx, ys[i] + dy);
     }
-    context.fillPolygon(xs, ys, nbPoints);
+    context.closePath();
   }
 
+
   /**
-   * @param spaceship a spaceship to display
+   * Renders the spaceship at its interpolated position, with its engines.
    */
-  public void render(Spaceship spaceship) {
+  private void renderSpaceship() {
     context.save();
-    Vector position = spaceship.getPosition();
-    context.translate(position.getX(), position.getY());
-    context.rotate(spaceship.getDirectionAngle());
-    renderSpaceShipImage(context, getImage(spaceshipImg));
+    context.translate(toCanvasX(spaceshipX), toCanvasY(spaceshipY));
+    context.rotate(spaceshipAngle);
+    renderSpaceShipImage(context, spaceshipImg);
     if (viewModel.isMainEngineOn());
-    renderSpaceShipImage(context, getImage(engineBurningImg));
+    renderSpaceShipImage(context, engineBurningImg);
     if (viewModel.isLeftEngineOn())
-      renderSpaceShipImage(context, getImage(clockwiseBurningImg));
+      renderSpaceShipImage(context, clockwiseBurningImg);
     if (viewModel.isRightEngineOn())
-      renderSpaceShipImage(context, getImage(counterclockwiseBurningImg));
+      renderSpaceShipImage(context, counterclockwiseBurningImg);
     if (viewModel.isMainEngineRecoil())
-      renderSpaceShipImage(context, getImage(reverseBurningImg));
+      renderSpaceShipImage(context, reverseBurningImg);
     if (viewModel.isSpaceshipInvulnerable() || viewModel.getSpaceshipInvulnerabilityTime()>=0)
-      renderSpaceShipImage(context,getImage(invulnerableImg));
+      renderSpaceShipImage(context, invulnerableImg);
     context.restore();
   }
 
@@ -157,10 +335,11 @@ public class CanvasView {
    * before calling this method, by rotation and translation, in such a
    * way that the spaceship would be in position (0,0) facing right.
    * @param context the drawing context rotated and translated
-   * @param img the image to draw
+   * @param img the path of the image to draw
    */
-  private void renderSpaceShipImage(GraphicsContext context, Image img) {
-    context.drawImage(
+  private void renderSpaceShipImage(GraphicsContext context, String img) {
+    atlas.draw(
+      context,
       img,
       - (double) PIXEL_SHIP_WIDTH / 2,
       - (double) PIXEL_SHIP_HEIGHT / 2,
@@ -175,12 +354,7 @@ public class CanvasView {
 
   private void renderLives(GraphicsContext context) {
     for (int i = 0; i < viewModel.getSpaceshipLiveNumbers() ; i++) {
-      context.drawImage(
-              getImage(spaceshipImg),
-              i*10,
-              700,
-              PIXEL_POWERUP_WIDTH,
-              PIXEL_POWERUP_HEIGHT);
+      atlas.draw(context, lifeImg, i*10, 700);
       context.save();
       context.translate(-1, -1);
       context.restore();
@@ -188,42 +362,66 @@ public class CanvasView {
 
   }
 
-  private void render(Projectile bullet) {
-    context.setFill(Color.ORANGE);
-    context.fillOval(bullet.getPosition().getX(),
-            bullet.getPosition().getY(),
-            10,
-            10);
-  }
   /**
-   * Load an image from cache or from file.\
+   * Render all the projectiles, as a single path of discs.
    *
-   * @param path path to the file containing the image.
-   * @return The image pointed to by the path.
+   * @param snapshot the state of the game
+   * @param dt the time from the snapshot to the drawn instant, at most 0
    */
-  private Image getImage(String path) {
-    if (images.containsKey(path)) return images.get(path);
-    Image image = new Image(getClass().getResource(path).toString());
-    images.put(path, image);
-    return image;
+  private void renderProjectiles(SpaceSnapshot snapshot, double dt) {
+    context.setFill(Color.ORANGE);
+    context.beginPath();
+    for (int i = 0; i < snapshot.getProjectileCount(); i++) {
+      double centerX = toCanvasX(snapshot.getProjectileX(i) + snapshot.getProjectileVelocityX(i) * dt)
+        + PROJECTILE_RADIUS;
+      double centerY = toCanvasY(snapshot.getProjectileY(i) + snapshot.getProjectileVelocityY(i) * dt)
+        + PROJECTILE_RADIUS;
+      if (!isVisible(centerX, centerY, PROJECTILE_RADIUS)) {
+        continue;
+      }
+      context.moveTo(centerX + PROJECTILE_RADIUS, centerY);
+      context.arc(centerX, centerY, PROJECTILE_RADIUS, PROJECTILE_RADIUS, 0, 360);
+      context.closePath();
+    }
+    context.fill();
   }
 
-  /* image cache */
-  private static final Map<String,Image> images = new HashMap<>();
-
-
-  /* You can add more images here */
+  /* You can add more images here, and to allImages */
   private static final String spaceshipImg ="/resources/spaceship.png";
   private static final String engineBurningImg ="/resources/engine_burning.png";
   private static final String reverseBurningImg = "/resources/reverse_burning.png";
   private static final String clockwiseBurningImg =  "/resources/clockwise_burning.png";
   private static final String counterclockwiseBurningImg = "/resources/counterclockwise_burning.png";
   private static final String invulnerableImg = "/resources/firingAround.png";
+  private static final String lifeImg = "life"; // the spaceship, resized to the size of a powerup
+
+  /* the images packed into the atlas */
+  private static final List<String> allImages = List.of(
+    spaceshipImg,
+    engineBurningImg,
+    reverseBurningImg,
+    clockwiseBurningImg,
+    counterclockwiseBurningImg,
+    invulnerableImg,
+    "/resources/bonusAdd100.png",
+    "/resources/bonusAdd500.png",
+    "/resources/bonusFullFuel.png",
+    "/resources/bonusMultiplier5.png",
+    "/resources/bonusPartialFuel.png",
+    "/resources/bonusUpgrade.png",
+    "/resources/doubleGun.png",
+    "/resources/multigun.png");
 
   // dimensions of the ship image
   private static final int PIXEL_SHIP_WIDTH = 57;
   private static final int PIXEL_SHIP_HEIGHT = 46;
 
+  // distance beyond the canvas at which items are still drawn
+  private static final double CULLING_MARGIN = 20;
+
+  // radius of the discs drawn for the projectiles
+  private static final double PROJECTILE_RADIUS = 5;
+
   // dimensions of powerup images
   private static final double PIXEL_POWERUP_WIDTH = 30;
   private static final double PIXEL_POWERUP_HEIGHT = 30;
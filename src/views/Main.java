@@ -37,7 +37,7 @@ public class Main extends Application {
     Scene scene = new Scene(root, WINDOW_WIDTH, CANVAS_HEIGHT);
     primaryStage.setScene(scene);
     view = fxmlLoader.getController();
-    ViewModel viewModel = new ViewModel(new Space(),view);
+    ViewModel viewModel = new ViewModel(ViewModel.createSpace(),view);
     view.initialize(viewModel);
     view.setEventHandler(scene);
     primaryStage.show();
@@ -0,0 +1,169 @@
+package views;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The images of the game, packed at startup into a single image. Each
+ * sprite is a rectangle of the atlas, so that every sprite is drawn from the
+ * same texture, and no image is loaded while playing.
+ * <p>
+ * Sprites are placed on shelves, from the tallest to the shortest, each
+ * shelf filled from left to right. A transparent gap separates the sprites,
+ * so that scaled sprites do not bleed into their neighbours.
+ * <p>
+ * A sprite may also be a resized copy of an image, so that an image always
+ * drawn small, like the lives, is resized once rather than at each frame.
+ */
+final class SpriteAtlas {
+
+  /**
+   * The width of the atlas, unless an image is wider.
+   */
+  private static final int ATLAS_WIDTH = 1024;
+  private static final int GAP = 1;
+
+  private final WritableImage image;
+  private final Map<String, Region> regions;
+
+
+  private SpriteAtlas(WritableImage image, Map<String, Region> regions) {
+    this.image = image;
+    this.regions = regions;
+  }
+
+
+  /**
+   * Loads and packs images.
+   *
+   * @param paths the paths of the image resources, each drawn at its own size
+   * @param resized the sprites resized at load time, by name
+   * @return the atlas of the images
+   */
+  static SpriteAtlas load(List<String> paths, Map<String, ResizedImage> resized) {
+    Map<String, Image> images = new HashMap<>();
+    for (String path : paths) {
+      images.put(path, loadImage(path, 0, 0));
+    }
+    for (Map.Entry<String, ResizedImage> entry : resized.entrySet()) {
+      ResizedImage size = entry.getValue();
+      images.put(entry.getKey(), loadImage(size.path, size.width, size.height));
+    }
+    List<String> names = new ArrayList<>(images.keySet());
+    names.sort(Comparator.comparingDouble((String name) -> images.get(name).getHeight())
+      .reversed().thenComparing(Comparator.naturalOrder()));
+
+    int atlasWidth = ATLAS_WIDTH;
+    for (Image image : images.values()) {
+      atlasWidth = Math.max(atlasWidth, (int) Math.ceil(image.getWidth()));
+    }
+    Map<String, Region> regions = new HashMap<>();
+    int x = 0;
+    int y = 0;
+    int shelfHeight = 0;
+    for (String name : names) {
+      Image image = images.get(name);
+      int width = (int) Math.ceil(image.getWidth());
+      int height = (int) Math.ceil(image.getHeight());
+      if (x + width > atlasWidth) {
+        x = 0;
+        y += shelfHeight + GAP;
+        shelfHeight = 0;
+      }
+      regions.put(name, new Region(x, y, width, height));
+      x += width + GAP;
+      shelfHeight = Math.max(shelfHeight, height);
+    }
+
+    WritableImage atlas = new WritableImage(atlasWidth, Math.max(1, y + shelfHeight));
+    for (String name : names) {
+      Region region = regions.get(name);
+      atlas.getPixelWriter().setPixels(region.x, region.y, region.width, region.height,
+        images.get(name).getPixelReader(), 0, 0);
+    }
+    return new SpriteAtlas(atlas, regions);
+  }
+
+  /**
+   * @param width the requested width, or 0 for the width of the file
+   * @param height the requested height, or 0 for the height of the file
+   */
+  private static Image loadImage(String path, double width, double height) {
+    String url = SpriteAtlas.class.getResource(path).toString();
+    Image image = new Image(url, width, height, false, true);
+    if (image.isError()) {
+      throw new IllegalStateException("cannot load the image " + path);
+    }
+    return image;
+  }
+
+
+  /**
+   * Draws a sprite into a rectangle.
+   *
+   * @param context the context to draw into
+   * @param name the path of the image, or the name of a resized sprite
+   * @param x the abscissa of the left side of the rectangle
+   * @param y the ordinate of the top side of the rectangle
+   * @param width the width of the rectangle
+   * @param height the height of the rectangle
+   */
+  void draw(GraphicsContext context, String name, double x, double y, double width, double height) {
+    Region region = regions.get(name);
+    context.drawImage(image, region.x, region.y, region.width, region.height,
+      x, y, width, height);
+  }
+
+  /**
+   * Draws a sprite at its own size.
+   *
+   * @param context the context to draw into
+   * @param name the path of the image, or the name of a resized sprite
+   * @param x the abscissa of the left side of the sprite
+   * @param y the ordinate of the top side of the sprite
+   */
+  void draw(GraphicsContext context, String name, double x, double y) {
+    Region region = regions.get(name);
+    draw(context, name, x, y, region.width, region.height);
+  }
+
+
+  /**
+   * An image to load at another size than the size of its file.
+   */
+  static final class ResizedImage {
+
+    private final String path;
+    private final double width;
+    private final double height;
+
+    ResizedImage(String path, double width, double height) {
+      this.path = path;
+      this.width = width;
+      this.height = height;
+    }
+  }
+
+  private static final class Region {
+
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    private Region(int x, int y, int width, int height) {
+      this.x = x;
+      this.y = y;
+      this.width = width;
+      this.height = height;
+    }
+  }
+
+}
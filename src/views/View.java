@@ -1,5 +1,6 @@
 package views;
 
+import game.PhaseProfiler;
 import inspector.Inspections;
 import viewModel.ViewModel;
 import inspector.ObjectInspection;
@@ -7,6 +8,7 @@ import javafx.fxml.FXML;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Button;
+import javafx.scene.control.Slider;
 import javafx.scene.control.TextField;
 import javafx.scene.control.TreeView;
 import javafx.scene.input.KeyEvent;
@@ -47,6 +49,9 @@ public class View {
       case SPACE:
         viewModel.fireSpaceshipGun();
         break;
+      case P:
+        canvasView.toggleProfile();
+        break;
     }
   }
 
@@ -100,40 +105,60 @@ public class View {
   private Button stepButton; // allows to spend a fix delay
   @FXML
   private TextField timeStepField; // defines the delay attached to the step button
+  @FXML
+  private Button stepBackButton; // goes back one tick, while the game is paused
+  @FXML
+  private Slider rewindSlider; // moves through the kept ticks, while the game is paused
+  private boolean isUpdatingRewindSlider; // whether the slider is moved by the program
 
   private final Timer timer = new Timer(this);
 
 
   /**
    * Method called by the animation timer when the scene must be updated.
+   * The game is simulated at a fixed rate on a thread of its own, so the
+   * frame only shows its latest state, whatever the delay between frames.
    *
-   * @param dt how much time spent since last tick, in seconds.
+   * @param dt how much time spent since last frame, in seconds, not used.
    */
   public void tick(double dt) {
-    update(dt);
+    update();
     render();
     if (isGameOver()) {
       timer.stop();
+      runButton.setText("Continue");
+      setPausedControlsVisible(true);
+      viewModel.saveProfile();
     }
   }
 
 
   /**
-   * Update the state of the game by a delay of dt seconds.
-   *
-   * @param dt the delay since last update.
+   * Fetch the latest state of the game, simulated on a thread of its own.
    */
-  private void update(double dt) {
-    viewModel.tick(dt);
+  private void update() {
+    viewModel.tick();
   }
 
 
   /**
-   * Redraw the scene.
+   * Redraw the scene, timing the canvas and the inspector. The inspector
+   * takes the simulation lock only while it reads values of the model,
+   * so that a large expanded tree does not stall the simulation.
    */
   public void render() {
+    PhaseProfiler profiler = viewModel.getProfiler();
+    long start = profiler.start();
     canvasView.render();
+    profiler.stop(PhaseProfiler.Phase.CANVAS_RENDER, start);
+    renderInspector();
+  }
+
+  private void renderInspector() {
+    PhaseProfiler profiler = viewModel.getProfiler();
+    long start = profiler.start();
     inspectionView.render();
+    profiler.stop(PhaseProfiler.Phase.INSPECTOR_RENDER, start);
   }
 
 
@@ -150,12 +175,15 @@ public class View {
       Inspections.addAuthorizedPackage(packageName);
     }
      inspectionView =
-      new inspector.View(treeView, new ObjectInspection("model", viewModel));
+      new inspector.View(treeView, new ObjectInspection("model", viewModel), viewModel::runLocked);
     canvas.setWidth(Main.CANVAS_WIDTH);
     canvas.setHeight(Main.CANVAS_HEIGHT);
     render();
     runButton.setOnMouseClicked(this::handleRunClicked);
     stepButton.setOnMouseClicked(this::handleStepClicked);
+    stepBackButton.setOnMouseClicked(this::handleStepBackClicked);
+    rewindSlider.valueProperty().addListener((value, oldTick, tick) -> handleRewindMoved(tick));
+    updateRewindSlider();
     timer.start();
   }
 
@@ -178,7 +206,9 @@ public class View {
   private void handleStepClicked(MouseEvent mouseEvent) {
     try {
       double dt = Double.parseDouble(timeStepField.getText());
-      tick(dt);
+      viewModel.step(dt);
+      render();
+      updateRewindSlider();
     } catch (NumberFormatException e) {
       timeStepField.setText("number expected");
     }
@@ -193,12 +223,77 @@ public class View {
   private void handleRunClicked(MouseEvent mouseEvent) {
     if (timer.isStopped()) {
       timer.restart();
+      viewModel.startSimulation();
       runButton.setText("Stop");
-      stepButton.setVisible(false);
+      setPausedControlsVisible(false);
     } else {
       timer.stop();
+      viewModel.pauseSimulation();
       runButton.setText("Continue");
-      stepButton.setVisible(true);
+      setPausedControlsVisible(true);
+    }
+  }
+
+
+  /**
+   * Defines what happens when the user click the step back button.
+   *
+   * @param mouseEvent the click event
+   */
+  private void handleStepBackClicked(MouseEvent mouseEvent) {
+    viewModel.stepBack();
+    render();
+    updateRewindSlider();
+  }
+
+
+  /**
+   * Defines what happens when the user moves the rewind slider: the game
+   * goes to the selected tick.
+   *
+   * @param tick the selected tick
+   */
+  private void handleRewindMoved(Number tick) {
+    if (isUpdatingRewindSlider || !timer.isStopped()) {
+      return;
+    }
+    long start = viewModel.getRewindStart();
+    long end = viewModel.getRewindEnd();
+    if (start < 0) {
+      return;
+    }
+    viewModel.rewindTo(Math.max(start, Math.min(end, Math.round(tick.doubleValue()))));
+    render();
+  }
+
+
+  /**
+   * Sets the range of the rewind slider to the kept ticks, and its value to
+   * the displayed tick.
+   */
+  private void updateRewindSlider() {
+    isUpdatingRewindSlider = true;
+    long start = viewModel.getRewindStart();
+    rewindSlider.setMin(Math.max(start, 0));
+    rewindSlider.setMax(Math.max(viewModel.getRewindEnd(), 0));
+    rewindSlider.setValue(viewModel.getTick());
+    rewindSlider.setDisable(start < 0);
+    stepBackButton.setDisable(start < 0);
+    isUpdatingRewindSlider = false;
+  }
+
+
+  /**
+   * Shows or hides the controls only available while the game is paused.
+   *
+   * @param visible whether the controls are shown
+   */
+  private void setPausedControlsVisible(boolean visible) {
+    stepButton.setVisible(visible);
+    stepBackButton.setVisible(visible);
+    rewindSlider.setVisible(visible);
+    if (visible) {
+      updateRewindSlider();
     }
   }
 
@@ -0,0 +1,31 @@
+package env;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class VectorEnvTest {
+
+    @org.junit.Test
+    public void parallelStepsMatchSequentialSteps() {
+        VectorEnv sequential = new VectorEnv(32, null);
+        VectorEnv parallel = new VectorEnv(32, new ForkJoinPool(2));
+        sequential.reset(3);
+        parallel.reset(3);
+        int[] actions = new int[32];
+        for (int step = 0; step < 300; step++) {
+            for (int env = 0; env < actions.length; env++) {
+                actions[env] = (env + step / 20) % 32;
+            }
+            sequential.step(actions);
+            parallel.step(actions);
+            assertArrayEquals(sequential.getObservations(), parallel.getObservations(), 0);
+            assertArrayEquals(sequential.getRewards(), parallel.getRewards(), 0);
+            assertArrayEquals(sequential.getDones(), parallel.getDones(), 0);
+        }
+        for (float observation : sequential.getObservations()) {
+            assertTrue(observation >= -1 && observation <= 1);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package game;
+
+import tools.Polygon;
+import tools.Vector;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AsteroidFieldTest {
+
+    private static final Polygon square = new Polygon(List.of(
+            new Vector(-5, -5),
+            new Vector(5, -5),
+            new Vector(5, 5),
+            new Vector(-5, 5)
+    ));
+
+    @org.junit.Test
+    public void handlesFollowTheirAsteroid() {
+        AsteroidField field = new AsteroidField(1);
+        Asteroid first = new Asteroid(new Vector(10, 10), square, new Vector(1, 0), 0, 1);
+        Asteroid second = new Asteroid(new Vector(20, 20), square, new Vector(0, 1), 0, 1);
+        Asteroid third = new Asteroid(new Vector(30, 30), square, new Vector(1, 1), 0, 1);
+        field.add(first);
+        field.add(second);
+        field.add(third);
+        field.update(1);
+
+        field.remove(first);
+
+        assertEquals(2, field.size());
+        assertEquals(31, third.getPosition().getX(), 1e-9);
+        assertEquals(21, second.getPosition().getY(), 1e-9);
+        assertEquals(11, first.getPosition().getX(), 1e-9);
+        assertTrue(field.asList().contains(third));
+        assertFalse(field.asList().contains(first));
+    }
+
+    @org.junit.Test
+    public void removedAsteroidsKeepTheirState() {
+        AsteroidField field = new AsteroidField();
+        Asteroid asteroid = field.get(field.add(new Vector(100, 100), square, new Vector(10, 0), 90, 1));
+        field.add(new Vector(300, 300), square, new Vector(0, 0), 0, 1);
+        field.update(1);
+        Vector corner = asteroid.getShape().getVertices().get(0);
+
+        field.remove(asteroid);
+        assertEquals(1, field.size());
+        assertEquals(110, asteroid.getPosition().getX(), 1e-9);
+        assertEquals(corner.getX(), asteroid.getShape().getVertices().get(0).getX(), 1e-9);
+        assertEquals(corner.getY(), asteroid.getShape().getVertices().get(0).getY(), 1e-9);
+        assertTrue(asteroid.contains(110, 100));
+        asteroid.update(1);
+        assertTrue(asteroid.contains(120, 100));
+        Vector turnedCorner = asteroid.getShape().getVertices().get(0);
+
+        field.add(asteroid);
+        assertEquals(2, field.size());
+        assertEquals(120, asteroid.getPosition().getX(), 1e-9);
+        assertEquals(turnedCorner.getX(), asteroid.getShape().getVertices().get(0).getX(), 1e-9);
+        assertEquals(turnedCorner.getY(), asteroid.getShape().getVertices().get(0).getY(), 1e-9);
+    }
+
+    @org.junit.Test
+    public void updateWrapsAroundSpace() {
+        AsteroidField field = new AsteroidField();
+        int slot = field.add(new Vector(Space.SPACE_WIDTH - 1, 0), square, new Vector(2, -2), 0, 1);
+        field.update(1);
+
+        Vector position = field.get(slot).getPosition();
+        assertEquals(1, position.getX(), 1e-9);
+        assertEquals(Space.SPACE_HEIGHT - 2, position.getY(), 1e-9);
+    }
+
+}
@@ -26,4 +26,24 @@ public class AsteroidTest {
 
     }
 
-}
\ No newline at end of file
+    @org.junit.Test
+    public void shapeFollowsUpdates() {
+        Polygon shape = new Polygon(List.of(
+                new Vector(0, -1),
+                new Vector(10, -1),
+                new Vector(10, 1),
+                new Vector(0, 1)
+        ));
+        Asteroid asteroid = new Asteroid(
+                new Vector(40,15),
+                shape, new Vector(10,0), 90, 1);
+
+        assertTrue(asteroid.contains(new Vector(45,15)));
+        asteroid.update(1);
+        assertFalse(asteroid.contains(new Vector(55,15)));
+        assertTrue(asteroid.contains(new Vector(50,10)));
+        assertEquals(asteroid.getShape().getVertices().get(1).getY(),
+                5, 1e-9);
+    }
+
+}
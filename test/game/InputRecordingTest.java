@@ -0,0 +1,46 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class InputRecordingTest {
+
+    @org.junit.Test
+    public void replayEndsInRecordedState() throws IOException {
+        Space space = new Space(30, 5);
+        Simulation simulation = new Simulation(space, Simulation.DEFAULT_TICK_RATE);
+        simulation.step(simulation.getTickDuration());
+        simulation.startRecording();
+        simulation.submit(Command.START_MAIN_ENGINE);
+        simulation.submit(Command.START_LEFT_ENGINE);
+        for (int tick = 0; tick < 600; tick++) {
+            if (tick % 10 == 0) {
+                simulation.submit(Command.FIRE);
+            }
+            if (tick == 300) {
+                simulation.submit(Command.STOP_LEFT_ENGINE);
+            }
+            simulation.step(tick < 500 ? simulation.getTickDuration() : 0.05);
+        }
+
+        Path file = Files.createTempFile("session", ".rec");
+        try {
+            simulation.saveRecording(file);
+            InputRecording recording = InputRecording.load(file);
+            assertEquals(600, recording.getTickCount());
+            assertEquals(63, recording.getCommandCount());
+            Space replayed = recording.replay();
+            assertTrue(recording.matches(replayed));
+            assertEquals(space.getScore().getScore(), replayed.getScore().getScore(), 0);
+
+            simulation.step(simulation.getTickDuration());
+            assertFalse(recording.matches(space));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
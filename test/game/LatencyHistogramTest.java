@@ -0,0 +1,43 @@
+package game;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @org.junit.Test
+    public void bucketsCoverEveryDurationInOrder() {
+        long[] values = { 0, 1, 15, 16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE };
+        int previous = -1;
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket >= previous);
+            assertTrue(bucket < LatencyHistogram.BUCKET_COUNT);
+            assertTrue(LatencyHistogram.lowerBound(bucket) <= value);
+            assertTrue(LatencyHistogram.upperBound(bucket) >= value);
+            previous = bucket;
+        }
+        for (int bucket = 0; bucket + 1 < LatencyHistogram.BUCKET_COUNT; bucket++) {
+            assertEquals(LatencyHistogram.upperBound(bucket) + 1, LatencyHistogram.lowerBound(bucket + 1));
+        }
+    }
+
+    @org.junit.Test
+    public void percentilesAreWithinTheirRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            histogram.record(nanos * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        long median = histogram.getPercentile(0.5);
+        assertTrue(median >= 500_000 && median <= 500_000 * 1.07);
+        long p99 = histogram.getPercentile(0.99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000);
+        assertEquals(1_000_000, histogram.getPercentile(1));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.5));
+    }
+
+}
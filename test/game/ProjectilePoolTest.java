@@ -0,0 +1,77 @@
+package game;
+
+import tools.Vector;
+
+import static org.junit.Assert.*;
+
+public class ProjectilePoolTest {
+
+    @org.junit.Test
+    public void expiresOldestAndKeepsOrder() {
+        ProjectilePool pool = new ProjectilePool(4);
+        for (int i = 0; i < 6; i++) {
+            pool.spawn(i, 0, 0, 0);
+            pool.update(0.25);
+        }
+        assertEquals(4, pool.size());
+        assertEquals(2, pool.getX(0), 0);
+
+        pool.markHit(1);
+        pool.removeHits();
+        assertEquals(3, pool.size());
+        assertEquals(2, pool.getX(0), 0);
+        assertEquals(4, pool.getX(1), 0);
+        assertEquals(5, pool.getX(2), 0);
+
+        pool.update(ProjectilePool.PROJECTILE_LIFETIME - 0.7);
+        pool.removeDead();
+        assertEquals(2, pool.size());
+        assertEquals(4, pool.getX(0), 0);
+    }
+
+    @org.junit.Test
+    public void wrapsProjectilesCrossingAnEdge() {
+        ProjectilePool pool = new ProjectilePool(4);
+        pool.spawn(Space.SPACE_WIDTH - 1, 1, 120, -120);
+        pool.update(1. / 60);
+        assertEquals(1, pool.getX(0), 1e-9);
+        assertEquals(Space.SPACE_HEIGHT - 1, pool.getY(0), 1e-9);
+    }
+
+    @org.junit.Test
+    public void removesProjectilesAddedWithShorterLives() {
+        ProjectilePool pool = new ProjectilePool(8);
+        pool.spawn(0, 0, 0, 0);
+        ProjectilePool other = new ProjectilePool(1);
+        other.spawn(1, 0, 0, 0);
+        other.update(1);
+        pool.add(other.get(0));
+        pool.spawn(2, 0, 0, 0);
+
+        pool.update(0.5);
+        pool.removeDead();
+        assertEquals(2, pool.size());
+        assertEquals(0, pool.getX(0), 0);
+        assertEquals(2, pool.getX(1), 0);
+
+        pool.update(ProjectilePool.PROJECTILE_LIFETIME);
+        pool.removeDead();
+        assertEquals(0, pool.size());
+    }
+
+    @org.junit.Test
+    public void addsProjectilesBuiltAlone() {
+        Projectile projectile = new Projectile(new Vector(10, 20), new Vector(60, -60));
+        projectile.update(0.5);
+        ProjectilePool pool = new ProjectilePool(4);
+        pool.add(projectile);
+        assertEquals(1, pool.size());
+        assertEquals(40, pool.getX(0), 1e-9);
+        assertEquals(-10, pool.getY(0), 1e-9);
+
+        pool.update(ProjectilePool.PROJECTILE_LIFETIME - 0.4);
+        pool.removeDead();
+        assertEquals(0, pool.size());
+    }
+
+}
@@ -0,0 +1,63 @@
+package game;
+
+import tools.Vector;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class RandomGeneratorTest {
+
+    @org.junit.Test
+    public void sameSeedSameValues() {
+        RandomGenerator first = new RandomGenerator(42);
+        RandomGenerator second = new RandomGenerator(42);
+        RandomGenerator firstSplit = first.split();
+        RandomGenerator secondSplit = second.split();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.nextLong(), second.nextLong());
+            assertEquals(firstSplit.nextGaussian(), secondSplit.nextGaussian(), 0);
+        }
+    }
+
+    @org.junit.Test
+    public void restoredSplitGeneratorGoesOn() {
+        RandomGenerator split = new RandomGenerator(42).split().split();
+        split.nextGaussian();
+        ByteBuffer buffer = ByteBuffer.allocate(RandomGenerator.ENCODED_SIZE);
+        split.write(buffer);
+        RandomGenerator restored = new RandomGenerator(0);
+        restored.read(buffer.flip());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(split.nextGaussian(), restored.nextGaussian(), 0);
+        }
+    }
+
+    @org.junit.Test
+    public void bulkAsteroidsAvoidPoint() {
+        AsteroidField field = new AsteroidField(1);
+        Vector avoided = new Vector(400, 400);
+        new RandomGenerator(42).asteroids(field, 500, 1, avoided, 80);
+        assertEquals(500, field.size());
+        for (int slot = 0; slot < field.size(); slot++) {
+            Asteroid asteroid = field.get(slot);
+            assertTrue(asteroid.getPosition().distanceTo(avoided) >= 80);
+            assertTrue(asteroid.getNbVertices() >= 5 && asteroid.getNbVertices() <= 12);
+        }
+    }
+
+    @org.junit.Test
+    public void shapesDoNotChangeOtherValues() {
+        AsteroidField first = new AsteroidField(1);
+        AsteroidField second = new AsteroidField(1);
+        Vector avoided = new Vector(400, 400);
+        new RandomGenerator(42).asteroids(first, 100, 1, avoided, 80, new RandomGenerator(1));
+        new RandomGenerator(42).asteroids(second, 100, 1, avoided, 80, new RandomGenerator(2));
+        for (int slot = 0; slot < first.size(); slot++) {
+            assertEquals(first.get(slot).getPosition().getX(), second.get(slot).getPosition().getX(), 0);
+            assertEquals(first.get(slot).getPosition().getY(), second.get(slot).getPosition().getY(), 0);
+            assertEquals(first.get(slot).getVelocity().getX(), second.get(slot).getVelocity().getX(), 0);
+        }
+    }
+
+}
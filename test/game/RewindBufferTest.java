@@ -0,0 +1,79 @@
+package game;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class RewindBufferTest {
+
+    private static void play(Space space, RewindBuffer rewind, long firstTick, int tickCount) {
+        for (long tick = firstTick; tick < firstTick + tickCount; tick++) {
+            if (tick % 6 == 0) {
+                space.fire();
+            }
+            space.tick(1. / 60);
+            rewind.capture(space, tick);
+        }
+    }
+
+    @org.junit.Test
+    public void restoresEveryKeptTick() {
+        Space space = new Space(50, 3);
+        space.getSpaceship().startMainEngine();
+        RewindBuffer rewind = new RewindBuffer(1 << 20);
+        ByteBuffer[] states = new ByteBuffer[200];
+        for (int tick = 0; tick < states.length; tick++) {
+            play(space, rewind, tick, 1);
+            states[tick] = space.snapshot();
+        }
+        assertEquals(0, rewind.getOldestTick());
+        assertEquals(199, rewind.getNewestTick());
+
+        Space restored = new Space(0, 0);
+        for (int tick : new int[] { 199, 120, 0, 57 }) {
+            rewind.restore(restored, tick);
+            assertEquals(states[tick], restored.snapshot());
+        }
+    }
+
+    @org.junit.Test
+    public void forgetsOldestStatesWithinBudget() {
+        Space space = new Space(50, 3);
+        RewindBuffer rewind = new RewindBuffer(16 << 10);
+        play(space, rewind, 0, 2000);
+        assertTrue(rewind.getOldestTick() > 0);
+        assertEquals(1999, rewind.getNewestTick());
+        assertTrue(rewind.getUsedBytes() <= 16 << 10);
+
+        Space restored = new Space(0, 0);
+        rewind.restore(restored, rewind.getNewestTick());
+        assertEquals(space.snapshot(), restored.snapshot());
+        try {
+            rewind.restore(restored, rewind.getOldestTick() - 1);
+            fail("tick already forgotten");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @org.junit.Test
+    public void capturingAfterRewindingForgetsFollowingStates() {
+        Space space = new Space(50, 3);
+        RewindBuffer rewind = new RewindBuffer(1 << 20);
+        play(space, rewind, 0, 100);
+        rewind.restore(space, 40);
+        ByteBuffer state40 = space.snapshot();
+
+        space.getSpaceship().startLeftEngine();
+        play(space, rewind, 41, 10);
+        assertEquals(0, rewind.getOldestTick());
+        assertEquals(50, rewind.getNewestTick());
+
+        Space restored = new Space(0, 0);
+        rewind.restore(restored, 40);
+        assertEquals(state40, restored.snapshot());
+        rewind.restore(restored, 50);
+        assertEquals(space.snapshot(), restored.snapshot());
+    }
+
+}
@@ -0,0 +1,28 @@
+package game;
+
+import static org.junit.Assert.*;
+
+public class SimulationTest {
+
+    @org.junit.Test
+    public void stepAppliesCommandsAndPublishes() {
+        Simulation simulation = new Simulation(new Space(), Simulation.DEFAULT_TICK_RATE);
+        SpaceSnapshot initial = simulation.getSnapshot();
+        assertEquals(0, initial.getTick());
+        assertFalse(initial.isMainEngineOn());
+
+        simulation.submit(Command.START_MAIN_ENGINE);
+        simulation.step(simulation.getTickDuration());
+
+        SpaceSnapshot snapshot = simulation.getSnapshot();
+        assertEquals(1, snapshot.getTick());
+        assertTrue(snapshot.isMainEngineOn());
+        assertSame(snapshot, simulation.getSnapshot());
+        assertEquals(0, simulation.getPreviousSnapshot().getTick());
+
+        simulation.step(simulation.getTickDuration());
+        assertEquals(2, simulation.getSnapshot().getTick());
+        assertSame(snapshot, simulation.getPreviousSnapshot());
+    }
+
+}
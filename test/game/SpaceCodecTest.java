@@ -0,0 +1,128 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class SpaceCodecTest {
+
+    private static Space playedSpace() {
+        Space space = new Space(200, 11);
+        space.getSpaceship().startMainEngine();
+        space.getSpaceship().startLeftEngine();
+        for (int tick = 0; tick < 120; tick++) {
+            if (tick % 5 == 0) {
+                space.fire();
+            }
+            space.update(1. / 60);
+        }
+        return space;
+    }
+
+    @org.junit.Test
+    public void restoredSpaceEvolvesIdentically() {
+        Space original = playedSpace();
+        ByteBuffer snapshot = original.snapshot();
+        assertEquals(SpaceCodec.size(original), snapshot.remaining());
+
+        Space restored = new Space(3, 99);
+        restored.restore(snapshot);
+        assertFalse(snapshot.hasRemaining());
+        assertEquals(original.getSeed(), restored.getSeed());
+        for (int tick = 0; tick < 240; tick++) {
+            if (tick % 7 == 0) {
+                original.fire();
+                restored.fire();
+            }
+            original.update(1. / 60);
+            restored.update(1. / 60);
+        }
+        assertEquals(original.snapshot(), restored.snapshot());
+        assertTrue(original.getScore().getScore() > 0);
+    }
+
+    @org.junit.Test
+    public void savesAndLoadsMappedFiles() throws IOException {
+        Space original = playedSpace();
+        Path file = Files.createTempFile("space", ".bin");
+        try {
+            SpaceCodec.save(original, file);
+            Space loaded = new Space(1, 0);
+            SpaceCodec.load(file, loaded);
+            assertEquals(original.snapshot(), loaded.snapshot());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @org.junit.Test
+    public void keepsTheSizeOfTheSpace() {
+        ByteBuffer snapshot = new Space(3, 5, 1600, 1200).snapshot();
+        Space empty = SpaceCodec.emptySpace(snapshot, 0);
+        assertEquals(1600, empty.getWidth(), 0);
+        assertEquals(1200, empty.getHeight(), 0);
+        try {
+            new Space(3, 5).restore(snapshot.duplicate());
+            fail("restored a snapshot into a space of another size");
+        } catch (IllegalArgumentException expected) {
+            // the size is part of the header
+        }
+        empty.restore(snapshot);
+        assertEquals(5, empty.getSeed());
+    }
+
+    @org.junit.Test
+    public void rejectsOtherData() {
+        try {
+            new Space(1, 0).restore(ByteBuffer.allocate(64));
+            fail("restored a buffer without a snapshot");
+        } catch (IllegalArgumentException expected) {
+            // the magic number is checked first
+        }
+    }
+
+    @org.junit.Test
+    public void rejectsTruncatedSnapshots() {
+        ByteBuffer snapshot = playedSpace().snapshot();
+        for (int length = 0; length < snapshot.limit(); length += 97) {
+            try {
+                new Space(1, 0).restore(snapshot.duplicate().limit(length));
+                fail("restored a snapshot truncated to " + length + " bytes");
+            } catch (IllegalArgumentException expected) {
+                // reading past the end is reported as invalid data
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void rejectsCorruptAsteroidCounts() {
+        Space space = playedSpace();
+        ByteBuffer snapshot = space.snapshot();
+        int countOffset = SpaceCodec.size(space) - space.getAsteroidField().getEncodedSize()
+                - space.getProjectilePool().getEncodedSize();
+        for (int count : new int[] { -1, Integer.MAX_VALUE }) {
+            snapshot.putInt(countOffset, count);
+            try {
+                new Space(1, 0).restore(snapshot.duplicate());
+                fail("restored a snapshot of " + count + " asteroids");
+            } catch (IllegalArgumentException expected) {
+                // the count is checked against the size of the snapshot
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void hashesWithoutChangingTheState() {
+        Space space = playedSpace();
+        ByteBuffer snapshot = space.snapshot();
+        long hash = SpaceCodec.hash(space);
+        assertEquals(hash, SpaceCodec.hash(space));
+        assertEquals(snapshot, space.snapshot());
+        space.update(1. / 60);
+        assertTrue(hash != SpaceCodec.hash(space));
+    }
+
+}
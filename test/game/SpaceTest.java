@@ -0,0 +1,119 @@
+package game;
+
+import tools.Polygon;
+import tools.Vector;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class SpaceTest {
+
+    private static Space space(ForkJoinPool pool) {
+        Space space = new Space(3 * ParallelRange.THRESHOLD, 42);
+        space.setParallelism(pool);
+        Random random = new Random(42);
+        for (int i = 0; i < 3 * ParallelRange.THRESHOLD; i++) {
+            space.addProjectile(
+                    random.nextDouble() * Space.SPACE_WIDTH, random.nextDouble() * Space.SPACE_HEIGHT,
+                    random.nextGaussian() * 100, random.nextGaussian() * 100);
+        }
+        return space;
+    }
+
+    @org.junit.Test
+    public void parallelUpdateIsIdentical() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Space sequential = space(null);
+        Space parallel = space(pool);
+        for (int tick = 0; tick < 20; tick++) {
+            sequential.update(1. / 60);
+            parallel.update(1. / 60);
+        }
+        pool.shutdown();
+
+        assertEquals(sequential.getAsteroids().size(), parallel.getAsteroids().size());
+        for (int i = 0; i < sequential.getAsteroids().size(); i++) {
+            assertEquals(sequential.getAsteroids().get(i).getPosition().getX(),
+                    parallel.getAsteroids().get(i).getPosition().getX(), 0);
+            assertArrayEquals(
+                    vertices(sequential.getAsteroids().get(i)), vertices(parallel.getAsteroids().get(i)), 0);
+        }
+        assertEquals(sequential.getProjectiles().size(), parallel.getProjectiles().size());
+        for (int i = 0; i < sequential.getProjectiles().size(); i++) {
+            assertEquals(sequential.getProjectiles().get(i).getPosition().getY(),
+                    parallel.getProjectiles().get(i).getPosition().getY(), 0);
+        }
+        assertTrue(sequential.getScore().getScore() > 0);
+        assertEquals(sequential.getScore().getScore(), parallel.getScore().getScore(), 0);
+        assertEquals(sequential.getAsteroidGrid().getExactTestCount(),
+                parallel.getAsteroidGrid().getExactTestCount());
+    }
+
+    @org.junit.Test
+    public void projectilesHitAsteroidsAcrossTheEdge() {
+        Space space = new Space(0, 1);
+        Polygon square = new Polygon(List.of(
+                new Vector(-20, -20), new Vector(20, -20),
+                new Vector(20, 20), new Vector(-20, 20)));
+        space.getAsteroidField().add(new Vector(2, 100), square, new Vector(0, 0), 0, 1);
+        space.addProjectile(Space.SPACE_WIDTH - 3, 100, 60, 0);
+        space.update(1. / 60);
+        assertEquals(0, space.getProjectiles().size());
+        assertTrue(space.getScore().getScore() > 0);
+    }
+
+    @org.junit.Test
+    public void rejectsInvalidSizes() {
+        double[] sizes = { 0, -800, Double.NaN, Double.POSITIVE_INFINITY };
+        for (double size : sizes) {
+            try {
+                new Space(1, 0, size, 800);
+                fail("built a space of width " + size);
+            } catch (IllegalArgumentException expected) {
+                // the size is checked before anything is built
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void largeSpacesWrapAtTheirOwnSize() {
+        Space space = new Space(0, 1, 2000, 1000);
+        assertEquals(1000, space.getSpaceship().getPosition().getX(), 0);
+        space.addProjectile(1500, 999, 60, 60);
+        space.update(1. / 60);
+        Vector position = space.getProjectiles().get(0).getPosition();
+        assertEquals(1501, position.getX(), 1e-9);
+        assertEquals(0, position.getY(), 1e-9);
+    }
+
+    @org.junit.Test
+    public void resetSpaceEvolvesAsNewSpace() {
+        Space reset = new Space(10, 3);
+        reset.fire();
+        for (int tick = 0; tick < 100; tick++) {
+            reset.update(1. / 60);
+        }
+        reset.reset(10, 7);
+        Space fresh = new Space(10, 7);
+        for (Space space : new Space[] { reset, fresh }) {
+            space.getSpaceship().startMainEngine();
+            for (int tick = 0; tick < 200; tick++) {
+                space.fire();
+                space.update(1. / 60);
+            }
+        }
+        assertEquals(fresh.snapshot(), reset.snapshot());
+    }
+
+    private static double[] vertices(Asteroid asteroid) {
+        double[] xs = new double[2 * asteroid.getNbVertices()];
+        double[] ys = new double[xs.length];
+        int count = asteroid.getVertices(xs, ys);
+        System.arraycopy(ys, 0, xs, count, count);
+        return xs;
+    }
+
+}
@@ -0,0 +1,45 @@
+package game;
+
+import tools.Vector;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SpatialHashTest {
+
+    @org.junit.Test
+    public void candidatesIncludeAllHits() {
+        RandomGenerator generator = new RandomGenerator();
+        AsteroidField field = new AsteroidField();
+        for (int i = 0; i < 200; i++) {
+            field.add(generator.asteroid(1, Space.SPACE_WIDTH, Space.SPACE_HEIGHT));
+        }
+        SpatialHash grid = new SpatialHash(Space.SPACE_WIDTH, Space.SPACE_HEIGHT);
+        grid.rebuild(field);
+        int[] candidates = new int[field.size()];
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            Vector point = new Vector(
+                    random.nextDouble() * 1.2 * Space.SPACE_WIDTH - 0.1 * Space.SPACE_WIDTH,
+                    random.nextDouble() * 1.2 * Space.SPACE_HEIGHT - 0.1 * Space.SPACE_HEIGHT);
+            int nbCandidates = grid.query(point.getX(), point.getY(), candidates);
+            for (int slot = 0; slot < field.size(); slot++) {
+                if (field.get(slot).contains(point)) {
+                    assertTrue(isCandidate(slot, candidates, nbCandidates));
+                }
+            }
+        }
+        assertTrue(grid.getCandidatePairCount() < 2000L * field.size());
+    }
+
+    private static boolean isCandidate(int slot, int[] candidates, int nbCandidates) {
+        for (int i = 0; i < nbCandidates; i++) {
+            if (candidates[i] == slot) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
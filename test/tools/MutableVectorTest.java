@@ -0,0 +1,32 @@
+package tools;
+
+import static org.junit.Assert.*;
+
+public class MutableVectorTest {
+
+    @org.junit.Test
+    public void addScaledAsVectorAdd() {
+        Vector position = new Vector(3, -2);
+        Vector velocity = new Vector(40, 25);
+        MutableVector mutablePosition = new MutableVector(3, -2);
+        MutableVector mutableVelocity = new MutableVector(40, 25);
+
+        Vector moved = mutablePosition.addScaled(mutableVelocity, 0.5).toVector();
+
+        assertEquals(position.add(velocity.multiply(0.5)).getX(), moved.getX(), 1e-12);
+        assertEquals(position.add(velocity.multiply(0.5)).getY(), moved.getY(), 1e-12);
+    }
+
+    @org.junit.Test
+    public void modifiesInPlace() {
+        MutableVector vector = new MutableVector();
+        Vector copy = vector.toVector();
+
+        assertSame(vector, vector.set(1, 2).add(0.5, -3));
+        assertEquals(1.5, vector.getX(), 0);
+        assertEquals(-1, vector.getY(), 0);
+        assertEquals(0, copy.getX(), 0);
+        assertEquals(0, copy.getY(), 0);
+    }
+
+}
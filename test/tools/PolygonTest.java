@@ -0,0 +1,45 @@
+package tools;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PolygonTest {
+
+    private final Polygon shape = new Polygon(List.of(
+            new Vector(-5, -5),
+            new Vector(5, -5),
+            new Vector(4, 2),
+            new Vector(-6, 4)
+    ));
+
+    @org.junit.Test
+    public void contains() {
+        assertTrue(shape.contains(new Vector(0, 0)));
+        assertTrue(shape.contains(-5.5, 3));
+        assertFalse(shape.contains(new Vector(5, 5)));
+        assertFalse(shape.contains(-20, 0));
+    }
+
+    @org.junit.Test
+    public void containsBatch() {
+        double[] xs = {0, 5, -20, 4.5};
+        double[] ys = {0, 5, 0, -4};
+        boolean[] results = new boolean[xs.length];
+
+        assertEquals(2, shape.contains(xs, ys, xs.length, results));
+        assertArrayEquals(new boolean[]{true, false, false, true}, results);
+        assertTrue(shape.containsAny(xs, ys, xs.length));
+        assertFalse(shape.containsAny(xs, ys, 0));
+    }
+
+    @org.junit.Test
+    public void containsInArrays() {
+        double[] xs = {0, 0, -5, 5, 4, -6};
+        double[] ys = {0, 0, -5, -5, 2, 4};
+
+        assertTrue(Polygon.contains(xs, ys, 2, 4, 0, 0));
+        assertFalse(Polygon.contains(xs, ys, 2, 4, 5, 5));
+    }
+
+}
@@ -0,0 +1,28 @@
+package tools;
+
+import static org.junit.Assert.*;
+
+public class RotationTest {
+
+    @org.junit.Test
+    public void applyAsVectorRotate() {
+        Vector vector = new Vector(3, -2);
+        Vector rotated = Rotation.ofDegrees(37).apply(vector);
+
+        assertEquals(vector.rotate(37).getX(), rotated.getX(), 1e-12);
+        assertEquals(vector.rotate(37).getY(), rotated.getY(), 1e-12);
+    }
+
+    @org.junit.Test
+    public void composeAddsAngles() {
+        Rotation rotation = Rotation.ofDegrees(10);
+        for (int i = 0; i < 1000; i++) {
+            rotation.compose(Rotation.ofDegrees(0.5)).normalize();
+        }
+
+        assertEquals(150, rotation.getDegrees(), 1e-9);
+        assertEquals(1, rotation.getCosine() * rotation.getCosine()
+                + rotation.getSine() * rotation.getSine(), 1e-12);
+    }
+
+}